@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Util;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what happens to a result after it has been parsed: tallying it, storing it the way
+ * {@link BehaveTestResultAction} does, loading it back and rendering its scenarios.
+ * 
+ * @author James Nord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ResultBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int scenarios;
+
+	private File dir;
+	private File stored;
+	private BehaveTestResult parsed;
+	private FeatureResult parsedFeature;
+	private FeatureResult storedFeature;
+
+
+	@Setup
+	public void setUp() throws IOException, InterruptedException {
+		dir = Files.createTempDirectory("behave-benchmark").toFile();
+		File report = report(scenarios).write(new File(dir, "report.json"));
+		parsed = new BehaveJSONParser().parse(Collections.singletonList(report), TaskListener.NULL);
+		stored = new File(dir, "result");
+		BehaveResultFormat.writeSegments(parsed, stored);
+		parsedFeature = parsed.getFeatures().iterator().next();
+		storedFeature = BehaveResultFormat.readSegments(stored).getFeatures().iterator().next();
+	}
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Util.deleteRecursive(dir);
+	}
+
+
+	/**
+	 * @return a report of the given number of scenarios, in features of 100 scenarios, that is the same for every
+	 *         run of the benchmarks.
+	 */
+	static SyntheticBehaveReport report(int scenarios) {
+		return new SyntheticBehaveReport().features(Math.max(1, scenarios / 100)).scenariosPerFeature(
+		        Math.min(scenarios, 100)).failureRatio(0.1).tableRows(3).tracebackDepth(10);
+	}
+
+
+	/**
+	 * A full tally, as done once a result has been parsed. Later tallies only visit what has changed.
+	 */
+	@Benchmark
+	public BehaveTestResult tally() {
+		for (FeatureResult fr : parsed.getFeatures()) {
+			for (ScenarioResult sr : fr.getScenarioResults()) {
+				sr.invalidateTally();
+			}
+		}
+		parsed.tally();
+		return parsed;
+	}
+
+
+	@Benchmark
+	public void store() throws IOException {
+		BehaveResultFormat.writeSegments(parsed, new File(dir, "store"));
+	}
+
+
+	@Benchmark
+	public BehaveTestResult load() throws IOException {
+		BehaveTestResult result = BehaveResultFormat.readSegments(stored);
+		for (FeatureResult fr : result.getFeatures()) {
+			fr.getChildren();
+		}
+		result.tally();
+		return result;
+	}
+
+
+	@Benchmark
+	public BehaveTestResult loadIndex() throws IOException {
+		BehaveTestResult result = BehaveResultFormat.readSegments(stored);
+		result.tally();
+		return result;
+	}
+
+
+	/** Renders the scenarios of a feature of the parsed result, which still has all of its gherkin details. */
+	@Benchmark
+	public long renderParsed() {
+		return render(parsedFeature);
+	}
+
+
+	/** Renders the scenarios of a feature of the stored result, which reads its gherkin details back. */
+	@Benchmark
+	public long renderStored() {
+		return render(storedFeature);
+	}
+
+
+	private static long render(FeatureResult feature) {
+		long length = 0;
+		for (ScenarioResult sr : feature.getChildren()) {
+			length += ScenarioToHTML.getHTML(sr).length();
+		}
+		return length;
+	}
+}
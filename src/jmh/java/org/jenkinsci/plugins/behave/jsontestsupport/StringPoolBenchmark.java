@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a {@link StringPool} that is shared by the threads of a parallel parse, the throughput with more
+ * threads should be higher than with one.
+ * 
+ * @author James Nord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StringPoolBenchmark {
+
+	/** The number of distinct strings, about the number of distinct steps of a large suite. */
+	private static final int DISTINCT = 10000;
+
+	private StringPool pool;
+	private String[] strings;
+
+
+	@Setup
+	public void setUp() {
+		pool = new StringPool();
+		strings = new String[DISTINCT];
+		for (int i = 0; i < DISTINCT; i++) {
+			strings[i] = "Given the step number " + i + " of the scenario";
+			pool.intern(strings[i]);
+		}
+	}
+
+
+	@Benchmark
+	@Threads(1)
+	public String internOneThread() {
+		return intern();
+	}
+
+
+	@Benchmark
+	@Threads(4)
+	public String internFourThreads() {
+		return intern();
+	}
+
+
+	/**
+	 * Intern a copy of a string, as a parser creates a new string for every occurrence of the same text.
+	 */
+	private String intern() {
+		return pool.intern(new String(strings[ThreadLocalRandom.current().nextInt(DISTINCT)]));
+	}
+}
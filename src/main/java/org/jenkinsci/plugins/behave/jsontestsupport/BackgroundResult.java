@@ -38,7 +38,7 @@ import hudson.tasks.test.TestResult;
 public class BackgroundResult extends TestResult {
 	
 	private static final long serialVersionUID = 1L;
-	private final Background background;
+	private Background background;
 	private final ArrayList<StepResult> stepResults; 
 	
 	private ScenarioResult parent;
@@ -114,9 +114,23 @@ public class BackgroundResult extends TestResult {
 	   return "Background Result";
         }
 
+	/**
+	 * @return the background, or <code>null</code> if it has been released.
+	 * @see ScenarioResult#getDetailedResult()
+	 */
 	public Background getBackground() {
 		return this.background;
 	}
+
+	/**
+	 * Release the gherkin details of this background and its steps which are only needed to render them.
+	 */
+	void releaseDetails() {
+		background = null;
+		for (StepResult sr : stepResults) {
+			sr.releaseDetails();
+		}
+	}
 	
 	void addStepResult(StepResult stepResult) {
 		stepResults.add(stepResult);
@@ -29,6 +29,8 @@ import hudson.model.AbstractBuild;
 import hudson.tasks.test.TestObject;
 import hudson.tasks.test.TestResult;
 
+import java.util.Collections;
+
 /**
  * Represents a Before or After belonging to a Scenario. Although this is a test Object as it is a background
  * it is not intended for individual Display.
@@ -39,15 +41,66 @@ public class BeforeAfterResult extends TestResult {
 
 	private static final long serialVersionUID = 1L;
     
-	private final Match match;
-	private final Result result;
+	private Match match;
+
+	/** Possibly <code>null</code> if behave did not report a result. */
+	private StepStatus status;
+	/** The status as it appears in the report when it is {@link StepStatus#UNKNOWN}, otherwise <code>null</code>. */
+	private String unknownStatus;
+	/** duration in nanoseconds. */
+	private long duration;
+	/** The error of code that did not pass, otherwise <code>null</code>. */
+	private String errorMessage;
+
+	/** @deprecated only present to read results that were stored before the status was held directly. */
+	@Deprecated
+	private Result result;
 
 	private transient AbstractBuild<?, ?> owner;
 
 
 	public BeforeAfterResult(Match match, Result result) {
+		this(match, result, null);
+	}
+
+
+	/**
+	 * @param pool the pool of the parse or load to share the error message through, or <code>null</code>.
+	 */
+	BeforeAfterResult(Match match, Result result, StringPool pool) {
 		this.match = match;
-		this.result = result;
+		setResult(result, pool);
+	}
+
+
+	private void setResult(Result result, StringPool pool) {
+		if (result == null) {
+			return;
+		}
+		status = StepStatus.fromString(result.getStatus());
+		if (status == StepStatus.UNKNOWN) {
+			// keep the text so that the status is stored as behave reported it.
+			unknownStatus = pool == null ? result.getStatus() : pool.intern(result.getStatus());
+		}
+		Long l = result.getDuration();
+		duration = l == null ? 0 : l.longValue();
+		if (status != StepStatus.PASSED && result.getErrorMessage() != null) {
+			// the steps of an outline fail with the same traceback for every example.
+			String joined = BehaveUtils.listToString(result.getErrorMessage());
+			errorMessage = pool == null ? joined : pool.intern(joined);
+		}
+	}
+
+
+	/**
+	 * Convert a result that was stored with its full {@link Result}.
+	 */
+	private Object readResolve() {
+		if (result != null) {
+			setResult(result, null);
+			result = null;
+		}
+		return this;
 	}
 
 
@@ -63,7 +116,7 @@ public class BeforeAfterResult extends TestResult {
 	 */
 	@Override
 	public int getPassCount() {
-		return BehaveUtils.PASSED_TEST_STRING.equals(result.getStatus()) ? 1 : 0;
+		return status == StepStatus.PASSED ? 1 : 0;
 	}
 
 
@@ -73,11 +126,7 @@ public class BeforeAfterResult extends TestResult {
 	 */
 	@Override
 	public int getFailCount() {
-		if (BehaveUtils.FAILED_TEST_STRING.equals(result.getStatus())
-				  || BehaveUtils.UNDEFINED_TEST_STRING.equals(result.getStatus())) {
-			return 1;
-		}
-		return 0;
+		return status != null && status.isFailure() ? 1 : 0;
 	}
 
 
@@ -87,11 +136,7 @@ public class BeforeAfterResult extends TestResult {
 	 */
 	@Override
 	public int getSkipCount() {
-		if (BehaveUtils.SKIPPED_TEST_STRING.equals(result.getStatus())
-		    || BehaveUtils.PENDING_TEST_STRING.equals(result.getStatus())) {
-			return 1;
-		}
-		return 0;
+		return status != null && status.isSkip() ? 1 : 0;
 	}
 
 
@@ -129,17 +174,53 @@ public class BeforeAfterResult extends TestResult {
 
 	@Override
 	public float getDuration() {
-		return BehaveUtils.durationFromResult(result);
+		// internally this is in nanosecodes
+		return duration / 1000000000.0f;
 	}
 
 
+	/**
+	 * @return the match, or <code>null</code> if it has been released or there was no match.
+	 */
 	Match getMatch() {
 		return match;
 	}
 
 
+	/**
+	 * @return the status, possibly <code>null</code>.
+	 */
+	StepStatus getStatus() {
+		return status;
+	}
+
+
+	/**
+	 * @return the error of code that did not pass, possibly <code>null</code>.
+	 */
+	String getErrorMessage() {
+		return errorMessage;
+	}
+
+
+	/**
+	 * Recreate the result for storing it.
+	 */
 	Result getResult() {
-		return result;
+		if (status == null) {
+			return null;
+		}
+		String s = status == StepStatus.UNKNOWN && unknownStatus != null ? unknownStatus : status.toString();
+		return new Result(s, Long.valueOf(duration),
+		                  errorMessage == null ? null : Collections.singletonList(errorMessage));
+	}
+
+
+	/**
+	 * Release the match which is only needed to render the result.
+	 */
+	void releaseDetails() {
+		match = null;
 	}
 
 }
@@ -29,10 +29,20 @@ import hudson.Extension;
 import hudson.Launcher;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 
@@ -45,6 +55,10 @@ public class BehaveJSONParser extends DefaultTestResultParserImpl {
 
 	private static final long serialVersionUID = -296964473181541824L;
 	private boolean ignoreBadSteps;
+	/** if true the reports are streamed rather than read into memory in one go. */
+	private boolean streaming;
+	/** the maximum number of report files to parse concurrently. */
+	private int parallelism = 1;
 
 	public BehaveJSONParser() {
 	}
@@ -53,6 +67,23 @@ public class BehaveJSONParser extends DefaultTestResultParserImpl {
 		this.ignoreBadSteps = ignoreBadSteps;
 	}
 
+	public BehaveJSONParser(boolean ignoreBadSteps, boolean streaming){
+		this(ignoreBadSteps);
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Set the number of report files that may be parsed at the same time.
+	 * @param parallelism the maximum number of threads to parse with, values less than 2 parse sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public int getParallelism() {
+		return parallelism < 1 ? 1 : parallelism;
+	}
+
 	@Override
 	public String getDisplayName() {
 		return "Behave JSON parser";
@@ -63,35 +94,119 @@ public class BehaveJSONParser extends DefaultTestResultParserImpl {
                 IOException {
 		
 		BehaveTestResult result = new BehaveTestResult();
-		GherkinCallback callback = new GherkinCallback(result, listener, ignoreBadSteps);
 		listener.getLogger().println("[Behave Tests] Parsing results.");
-		JSONParser jsonParser = new JSONParser(callback, callback);
+		// shared by every file so that text repeated across files is also only held once.
+		StringPool pool = new StringPool();
+		// the size of the embeddings kept for the build so far.
+		AtomicLong embeddedBytes = new AtomicLong();
 		
 		try {
-			for (File f : reportFiles) {
-				String s = FileUtils.readFileToString(f, "UTF-8");
-				// if no scenarios where executed for a feature then a json file may still exist.
-				if (s.isEmpty()) {
-					listener.getLogger().println("[Behave Tests] ignoring empty file (" + f.getName() + ")");
+			if (getParallelism() > 1 && reportFiles.size() > 1) {
+				parseInParallel(result, reportFiles, pool, embeddedBytes, listener);
+			}
+			else {
+				GherkinCallback callback = new GherkinCallback(result, listener, ignoreBadSteps, pool);
+				try {
+					for (File f : reportFiles) {
+						parseFile(f, callback, embeddedBytes, listener);
+					}
 				}
-				else {listener.getLogger().println("[Behave Tests] parsing " + f.getName());
-					jsonParser.parse(s);
+				finally {
+					// even though this is a noop prevent an eclipse warning.
+					callback.close();
 				}
 			}
 		}
+		catch (InterruptedException ie) {
+			throw ie;
+		}
 		catch (Exception ccm) {
             ccm.printStackTrace();
 			throw new AbortException("Failed to parse Behave JSON: " + ccm.getMessage());
 		}
-		finally {
-			// even though this is a noop prevent an eclipse warning.
-			callback.close();
-		}
+		listener.getLogger().println("[Behave Tests] Deduplicated " + pool.getDuplicates() + " strings saving " +
+		                             pool.getSavedBytes() / 1024 + " KB.");
 		result.tally();
 		return result;
 	}
 
 
+	/**
+	 * Parses the files concurrently, each in to its own set of {@link FeatureResult}s which are then added to the
+	 * result in the same order as the files were given so that the result does not depend on the scheduling.
+	 */
+	private void parseInParallel(BehaveTestResult result, List<File> reportFiles, final StringPool pool,
+	                             final AtomicLong embeddedBytes, final TaskListener listener) throws Exception {
+		int threads = Math.min(getParallelism(), reportFiles.size());
+		listener.getLogger().println("[Behave Tests] Parsing " + reportFiles.size() + " files using " + threads + 
+		                             " threads.");
+		ExecutorService executor =
+		      Executors.newFixedThreadPool(threads, new NamingThreadFactory(new DaemonThreadFactory(),
+		                                                                    "Behave JSON parser"));
+		try {
+			List<Future<Collection<FeatureResult>>> futures = new ArrayList<>(reportFiles.size());
+			for (final File f : reportFiles) {
+				futures.add(executor.submit(new Callable<Collection<FeatureResult>>() {
+					@Override
+					public Collection<FeatureResult> call() throws Exception {
+						BehaveTestResult fileResult = new BehaveTestResult();
+						GherkinCallback callback = new GherkinCallback(fileResult, listener, ignoreBadSteps, pool);
+						try {
+							parseFile(f, callback, embeddedBytes, listener);
+						}
+						finally {
+							callback.close();
+						}
+						return fileResult.getFeatures();
+					}
+				}));
+			}
+			for (Future<Collection<FeatureResult>> future : futures) {
+				Collection<FeatureResult> features;
+				try {
+					features = future.get();
+				}
+				catch (ExecutionException ee) {
+					Throwable cause = ee.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw ee;
+				}
+				for (FeatureResult fr : features) {
+					result.addFeatureResult(fr);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	private void parseFile(File f, GherkinCallback callback, AtomicLong embeddedBytes, TaskListener listener)
+	        throws IOException {
+		if (streaming) {
+			if (f.length() == 0) {
+				listener.getLogger().println("[Behave Tests] ignoring empty file (" + f.getName() + ")");
+			}
+			else {
+				listener.getLogger().println("[Behave Tests] streaming " + f.getName());
+				new BehaveJSONStreamParser(callback, listener, embeddedBytes).parse(f);
+			}
+			return;
+		}
+		String s = FileUtils.readFileToString(f, "UTF-8");
+		// if no scenarios where executed for a feature then a json file may still exist.
+		if (s.isEmpty()) {
+			listener.getLogger().println("[Behave Tests] ignoring empty file (" + f.getName() + ")");
+		}
+		else {listener.getLogger().println("[Behave Tests] parsing " + f.getName());
+			new JSONParser(callback, callback).parse(s);
+		}
+	}
+
+
 	@Override
 	public BehaveTestResult parse(final String testResultLocations,
 	                        final AbstractBuild build,
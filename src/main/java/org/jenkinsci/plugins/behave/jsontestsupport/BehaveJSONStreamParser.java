@@ -0,0 +1,915 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import behave.gherkin.JSONParser;
+import behave.gherkin.formatter.Formatter;
+import behave.gherkin.formatter.Reporter;
+import behave.gherkin.formatter.model.Background;
+import behave.gherkin.formatter.model.Examples;
+import behave.gherkin.formatter.model.Feature;
+import behave.gherkin.formatter.model.Match;
+import behave.gherkin.formatter.model.Result;
+import behave.gherkin.formatter.model.Scenario;
+import behave.gherkin.formatter.model.ScenarioOutline;
+import behave.gherkin.formatter.model.Step;
+import hudson.model.TaskListener;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parses a Behave JSON report without ever holding the whole report in memory.
+ * <p>
+ * The report is read twice. The first pass collects the (small) header of every feature, skipping over its
+ * elements - behave sorts the keys it writes so <code>"elements"</code> comes before the name and tags of the
+ * feature. The second pass hands each element to the {@link JSONParser} on its own wrapped in a copy of the
+ * feature header, so that the peak memory is bounded by the size of a single scenario rather than the size of
+ * the report.
+ * <p>
+ * The base64 data of embeddings is never part of the copied element. It is decoded as it is read straight in to a
+ * temporary file, so a large screenshot or video does not need to fit in memory. Embeddings larger than the
+ * <code>maxEmbeddingBytes</code> system property (100MB by default), or that would take the embedded data of the
+ * build past the <code>maxBuildEmbeddingBytes</code> system property (1GB by default), are dropped. The properties
+ * are prefixed with the name of this class and are read on the node that parses the reports.
+ *
+ * @author James Nord
+ */
+class BehaveJSONStreamParser {
+
+	private static final Logger LOGGER = Logger.getLogger(BehaveJSONStreamParser.class.getName());
+
+	private static final String ELEMENTS_KEY = "\"elements\"";
+
+	private static final String EMBEDDINGS_KEY = "\"embeddings\"";
+
+	private final GherkinCallback callback;
+
+	private final TaskListener listener;
+
+	/** The size of the embeddings of the build so far, shared by every file of the build. */
+	private final AtomicLong embeddedBytes;
+
+	private long maxEmbeddingBytes =
+	      Long.getLong(BehaveJSONStreamParser.class.getName() + ".maxEmbeddingBytes", 100L * 1024 * 1024);
+
+	private long maxBuildEmbeddingBytes =
+	      Long.getLong(BehaveJSONStreamParser.class.getName() + ".maxBuildEmbeddingBytes", 1024L * 1024 * 1024);
+
+
+	BehaveJSONStreamParser(GherkinCallback callback) {
+		this(callback, null, new AtomicLong());
+	}
+
+
+	/**
+	 * @param callback the callback to report the parsed report to.
+	 * @param listener the listener to report dropped embeddings to, may be <code>null</code>.
+	 * @param embeddedBytes the size of the embeddings of the build that have been kept so far.
+	 */
+	BehaveJSONStreamParser(GherkinCallback callback, TaskListener listener, AtomicLong embeddedBytes) {
+		this.callback = callback;
+		this.listener = listener;
+		this.embeddedBytes = embeddedBytes;
+	}
+
+
+	/**
+	 * Override the limits of the embedded data that is kept.
+	 *
+	 * @param maxEmbeddingBytes the largest embedding that is kept.
+	 * @param maxBuildEmbeddingBytes the most embedded data that is kept for the build.
+	 */
+	void setEmbeddingLimits(long maxEmbeddingBytes, long maxBuildEmbeddingBytes) {
+		this.maxEmbeddingBytes = maxEmbeddingBytes;
+		this.maxBuildEmbeddingBytes = maxBuildEmbeddingBytes;
+	}
+
+
+	/**
+	 * Parse the report contained in the given file.
+	 *
+	 * @param file the behave json report.
+	 * @throws IOException if the report could not be read.
+	 * @throws BehaveModelException if the report is not valid JSON.
+	 */
+	void parse(File file) throws IOException {
+		List<String> headers;
+		try (JSONScanner scanner = new JSONScanner(new FileInputStream(file))) {
+			headers = readFeatureHeaders(scanner);
+		}
+		try (JSONScanner scanner = new JSONScanner(new FileInputStream(file))) {
+			parseFeatures(scanner, headers);
+		}
+	}
+
+
+	/**
+	 * Collects the raw text of every key of every feature apart from the elements.
+	 */
+	private static List<String> readFeatureHeaders(JSONScanner scanner) throws IOException {
+		List<String> headers = new ArrayList<>();
+		if (!scanner.startDocument()) {
+			return headers;
+		}
+		while (scanner.nextArrayValue()) {
+			StringBuilder header = new StringBuilder(1024);
+			scanner.startObject();
+			while (scanner.nextObjectKey()) {
+				String key = scanner.readKey();
+				if (ELEMENTS_KEY.equals(key)) {
+					scanner.readValue(null);
+				}
+				else {
+					if (header.length() != 0) {
+						header.append(',');
+					}
+					header.append(key).append(':');
+					scanner.readValue(header);
+				}
+			}
+			headers.add(header.toString());
+		}
+		return headers;
+	}
+
+
+	private void parseFeatures(JSONScanner scanner, List<String> headers) throws IOException {
+		if (!scanner.startDocument()) {
+			return;
+		}
+		FeatureFilter filter = new FeatureFilter(callback);
+		JSONParser jsonParser = new JSONParser(filter, filter);
+		EmbeddingExtractor embeddings = new EmbeddingExtractor();
+		int featureIdx = 0;
+		try {
+			while (scanner.nextArrayValue()) {
+				if (featureIdx >= headers.size()) {
+					throw new BehaveModelException("Behave JSON report changed whilst it was being parsed.");
+				}
+				String header = headers.get(featureIdx++);
+				filter.newFeature();
+				scanner.startObject();
+				while (scanner.nextObjectKey()) {
+					if (ELEMENTS_KEY.equals(scanner.readKey())) {
+						scanner.startArray();
+						while (scanner.nextArrayValue()) {
+							StringBuilder element = new StringBuilder(4096);
+							scanner.readValue(element, embeddings);
+							jsonParser.parse(wrapElement(header, element));
+							// the scenario of the element is still the current one.
+							embeddings.deliver();
+							filter.continueFeature();
+						}
+					}
+					else {
+						scanner.readValue(null);
+					}
+				}
+				if (!filter.isContinuation()) {
+					// a feature without any elements still needs reporting.
+					jsonParser.parse(wrapElement(header, null));
+				}
+				callback.eof();
+			}
+		}
+		finally {
+			embeddings.discard();
+		}
+	}
+
+
+	/**
+	 * Create a single feature JSON document containing only the given element.
+	 */
+	private static String wrapElement(String header, CharSequence element) {
+		StringBuilder sb = new StringBuilder(header.length() + (element == null ? 0 : element.length()) + 32);
+		sb.append("[{").append(header);
+		if (header.length() != 0) {
+			sb.append(',');
+		}
+		sb.append(ELEMENTS_KEY).append(":[");
+		if (element != null) {
+			sb.append(element);
+		}
+		sb.append("]}]");
+		return sb.toString();
+	}
+
+
+	/**
+	 * Passes events through to the {@link GherkinCallback} apart from those that would start a new feature when
+	 * we are continuing the current one, and the end of feature which is signalled once all elements are done.
+	 */
+	private static final class FeatureFilter implements Formatter, Reporter {
+
+		private final GherkinCallback delegate;
+
+		private boolean continuation = false;
+
+
+		FeatureFilter(GherkinCallback delegate) {
+			this.delegate = delegate;
+		}
+
+
+		void newFeature() {
+			continuation = false;
+		}
+
+
+		void continueFeature() {
+			continuation = true;
+		}
+
+
+		boolean isContinuation() {
+			return continuation;
+		}
+
+
+		@Override
+		public void uri(String uri) {
+			if (!continuation) {
+				delegate.uri(uri);
+			}
+		}
+
+
+		@Override
+		public void feature(Feature feature) {
+			if (!continuation) {
+				delegate.feature(feature);
+			}
+		}
+
+
+		@Override
+		public void background(Background background) {
+			delegate.background(background);
+		}
+
+
+		@Override
+		public void scenario(Scenario scenario) {
+			delegate.scenario(scenario);
+		}
+
+
+		@Override
+		public void scenarioOutline(ScenarioOutline scenarioOutline) {
+			delegate.scenarioOutline(scenarioOutline);
+		}
+
+
+		@Override
+		public void examples(Examples examples) {
+			delegate.examples(examples);
+		}
+
+
+		@Override
+		public void startOfScenarioLifeCycle(Scenario scenario) {
+			delegate.startOfScenarioLifeCycle(scenario);
+		}
+
+
+		@Override
+		public void endOfScenarioLifeCycle(Scenario scenario) {
+			delegate.endOfScenarioLifeCycle(scenario);
+		}
+
+
+		@Override
+		public void step(Step step) {
+			delegate.step(step);
+		}
+
+
+		@Override
+		public void eof() {
+			// swallowed - the end of the feature is signalled once all of its elements have been parsed.
+		}
+
+
+		@Override
+		public void syntaxError(String state, String event, List<String> legalEvents, String uri, Integer line) {
+			delegate.syntaxError(state, event, legalEvents, uri, line);
+		}
+
+
+		@Override
+		public void done() {
+			delegate.done();
+		}
+
+
+		@Override
+		public void close() {
+			delegate.close();
+		}
+
+
+		@Override
+		public void before(Match match, Result result) {
+			delegate.before(match, result);
+		}
+
+
+		@Override
+		public void result(Result result) {
+			delegate.result(result);
+		}
+
+
+		@Override
+		public void after(Match match, Result result) {
+			delegate.after(match, result);
+		}
+
+
+		@Override
+		public void match(Match match) {
+			delegate.match(match);
+		}
+
+
+		@Override
+		public void embedding(String mimeType, byte[] data) {
+			delegate.embedding(mimeType, data);
+		}
+
+
+		@Override
+		public void write(String text) {
+			delegate.write(text);
+		}
+	}
+
+
+	/**
+	 * Decodes the embeddings of an element in to temporary files whilst it is being copied, and hands them to the
+	 * {@link GherkinCallback} once the element has been parsed.
+	 */
+	private final class EmbeddingExtractor {
+
+		private final List<String> mimeTypes = new ArrayList<>();
+
+		private final List<File> files = new ArrayList<>();
+
+
+		/**
+		 * Extract the embeddings array whose key has just been read.
+		 */
+		void extract(JSONScanner scanner) throws IOException {
+			if (scanner.peekNonWhitespace() != '[') {
+				scanner.readValue(null);
+				return;
+			}
+			scanner.startArray();
+			while (scanner.nextArrayValue()) {
+				String mimeType = null;
+				File data = null;
+				scanner.startObject();
+				try {
+					while (scanner.nextObjectKey()) {
+						String key = scanner.readKey();
+						if ("\"mime_type\"".equals(key) && scanner.peekNonWhitespace() == '"') {
+							StringBuilder sb = new StringBuilder(32);
+							scanner.readValue(sb);
+							// mime types do not need escaping, bar the optional escape of a '/'
+							mimeType = sb.substring(1, sb.length() - 1).replace("\\/", "/");
+						}
+						else if ("\"data\"".equals(key) && scanner.peekNonWhitespace() == '"' && data == null) {
+							data = decode(scanner);
+						}
+						else {
+							scanner.readValue(null);
+						}
+					}
+				}
+				catch (IOException | RuntimeException ex) {
+					delete(data);
+					throw ex;
+				}
+				if (data != null) {
+					mimeTypes.add(mimeType);
+					files.add(data);
+				}
+			}
+		}
+
+
+		/**
+		 * Decode the base64 string at the current position in to a temporary file.
+		 *
+		 * @return the file, or <code>null</code> if the embedding was too large to keep.
+		 */
+		private File decode(JSONScanner scanner) throws IOException {
+			scanner.expect('"');
+			File file = BehaveUtils.createEmbedFile();
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+			long limit = Math.min(maxEmbeddingBytes, maxBuildEmbeddingBytes - embeddedBytes.get());
+			long size = 0;
+			int bits = 0;
+			int count = 0;
+			try {
+				while (true) {
+					int c = scanner.read();
+					if (c == -1) {
+						throw scanner.error("unterminated string");
+					}
+					if (c == '"') {
+						break;
+					}
+					if (c == '\\') {
+						c = scanner.read();
+						if (c == -1) {
+							throw scanner.error("unterminated string");
+						}
+						if (c == 'u') {
+							c = scanner.readHex();
+						}
+						else if (c != '/') {
+							// an escaped line break or quote is never part of the data.
+							continue;
+						}
+					}
+					int sextet = sextet(c);
+					if (sextet < 0) {
+						// padding or line breaks.
+						continue;
+					}
+					bits = (bits << 6) | sextet;
+					if (++count == 4) {
+						size += 3;
+						if (os != null) {
+							os = write(os, bits, 3, size, limit, file);
+						}
+						bits = 0;
+						count = 0;
+					}
+				}
+				if (count > 1) {
+					// 2 sextets hold one byte and 3 hold two.
+					size += count - 1;
+					if (os != null) {
+						os = write(os, bits << (6 * (4 - count)), count - 1, size, limit, file);
+					}
+				}
+			}
+			catch (IOException | RuntimeException ex) {
+				if (os != null) {
+					os.close();
+				}
+				delete(file);
+				throw ex;
+			}
+			if (os == null) {
+				return null;
+			}
+			os.close();
+			if (embeddedBytes.addAndGet(size) > maxBuildEmbeddingBytes) {
+				// another file of the build used up the budget whilst this one was being decoded.
+				embeddedBytes.addAndGet(-size);
+				dropped(file, size);
+				return null;
+			}
+			return file;
+		}
+
+
+		/**
+		 * Write the top <code>n</code> bytes of the 3 byte group, unless the embedding has grown past the limit in
+		 * which case it is dropped.
+		 *
+		 * @return the stream to keep writing to or <code>null</code> if the embedding was dropped.
+		 */
+		private OutputStream write(OutputStream os, int group, int n, long size, long limit, File file)
+		        throws IOException {
+			if (size > limit) {
+				os.close();
+				dropped(file, size);
+				return null;
+			}
+			for (int i = 0; i < n; i++) {
+				os.write(group >> (16 - 8 * i));
+			}
+			return os;
+		}
+
+
+		private void dropped(File file, long size) {
+			delete(file);
+			String msg = "[Behave Tests] dropping an embedding of at least " + size + " bytes as it exceeds the limit"
+			             + " of " + maxEmbeddingBytes + " bytes per embedding or " + maxBuildEmbeddingBytes
+			             + " bytes per build.";
+			LOGGER.log(Level.FINE, msg);
+			if (listener != null) {
+				listener.getLogger().println(msg);
+			}
+		}
+
+
+		/**
+		 * Hand the embeddings of the element that was just parsed to the callback.
+		 */
+		void deliver() {
+			for (int i = 0; i < files.size(); i++) {
+				callback.embedding(mimeTypes.get(i), files.get(i));
+			}
+			mimeTypes.clear();
+			files.clear();
+		}
+
+
+		/**
+		 * Remove any embeddings that were not delivered as the parse failed.
+		 */
+		void discard() {
+			for (File f : files) {
+				delete(f);
+			}
+			mimeTypes.clear();
+			files.clear();
+		}
+
+
+		private void delete(File file) {
+			if (file != null && !file.delete() && file.exists()) {
+				LOGGER.log(Level.WARNING, "Failed to delete " + file);
+			}
+		}
+	}
+
+
+	/**
+	 * @return the value of a base64 character, or <code>-1</code> for any other character.
+	 */
+	static int sextet(int c) {
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		}
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 26;
+		}
+		if (c >= '0' && c <= '9') {
+			return c - '0' + 52;
+		}
+		if (c == '+' || c == '-') {
+			return 62;
+		}
+		if (c == '/' || c == '_') {
+			return 63;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * A minimal pull scanner over JSON text that can copy or skip whole values without building a tree.
+	 */
+	static final class JSONScanner implements Closeable {
+
+		private final Reader reader;
+
+		private final char[] buffer = new char[64 * 1024];
+
+		private int pos = 0;
+
+		private int limit = 0;
+
+		/** number of characters consumed before the current buffer - used for error reporting only */
+		private long offset = 0;
+
+		/** <code>true</code> if the next value in the current array or object is the first one. */
+		private boolean first;
+
+
+		JSONScanner(InputStream in) throws IOException {
+			this(new InputStreamReader(in, "UTF-8"));
+		}
+
+
+		JSONScanner(Reader reader) {
+			this.reader = reader;
+		}
+
+
+		/**
+		 * Positions the scanner inside the top level array.
+		 *
+		 * @return <code>false</code> if the document is empty.
+		 */
+		boolean startDocument() throws IOException {
+			int c = peekNonWhitespace();
+			if (c == '\uFEFF') {
+				// byte order mark
+				pos++;
+				c = peekNonWhitespace();
+			}
+			if (c == -1) {
+				return false;
+			}
+			startArray();
+			return true;
+		}
+
+
+		void startArray() throws IOException {
+			expect('[');
+			first = true;
+		}
+
+
+		void startObject() throws IOException {
+			expect('{');
+			first = true;
+		}
+
+
+		/**
+		 * @return <code>true</code> if there is another value in the current array, <code>false</code> if the end
+		 *         of the array has been consumed.
+		 */
+		boolean nextArrayValue() throws IOException {
+			return hasNext(']');
+		}
+
+
+		/**
+		 * @return <code>true</code> if there is another key in the current object, <code>false</code> if the end
+		 *         of the object has been consumed.
+		 */
+		boolean nextObjectKey() throws IOException {
+			return hasNext('}');
+		}
+
+
+		private boolean hasNext(char end) throws IOException {
+			int c = peekNonWhitespace();
+			if (c == end) {
+				pos++;
+				// the container we just finished was itself a value of its parent.
+				first = false;
+				return false;
+			}
+			if (!first) {
+				expect(',');
+			}
+			first = false;
+			return true;
+		}
+
+
+		/**
+		 * Reads the next key of an object along with its separator.
+		 *
+		 * @return the raw (still quoted and escaped) text of the key.
+		 */
+		String readKey() throws IOException {
+			StringBuilder sb = new StringBuilder(32);
+			if (peekNonWhitespace() != '"') {
+				throw error("expected an object key");
+			}
+			pos++;
+			readString(sb);
+			expect(':');
+			return sb.toString();
+		}
+
+
+		/**
+		 * Reads a complete value, appending its raw text to <code>out</code> if it is not <code>null</code>.
+		 */
+		void readValue(StringBuilder out) throws IOException {
+			readValue(out, null);
+		}
+
+
+		/**
+		 * Reads a complete value, appending its raw text to <code>out</code> if it is not <code>null</code>. The
+		 * data of any embeddings within the value is extracted by <code>embeddings</code>, if given, and they are
+		 * copied as an empty array.
+		 */
+		private void readValue(StringBuilder out, EmbeddingExtractor embeddings) throws IOException {
+			int c = peekNonWhitespace();
+			if (c == -1) {
+				throw error("unexpected end of file");
+			}
+			pos++;
+			if (c == '"') {
+				readString(out);
+			}
+			else if (c == '{' || c == '[') {
+				readContainer((char) c, out, embeddings);
+			}
+			else {
+				append(out, (char) c);
+				readLiteral(out);
+			}
+		}
+
+
+		/** reads the remainder of a string whose opening quote has been consumed. */
+		private void readString(StringBuilder out) throws IOException {
+			append(out, '"');
+			while (true) {
+				int c = read();
+				if (c == -1) {
+					throw error("unterminated string");
+				}
+				append(out, (char) c);
+				if (c == '"') {
+					return;
+				}
+				if (c == '\\') {
+					c = read();
+					if (c == -1) {
+						throw error("unterminated string");
+					}
+					append(out, (char) c);
+				}
+			}
+		}
+
+
+		/** reads the remainder of an object or array whose opening bracket has been consumed. */
+		private void readContainer(char open, StringBuilder out, EmbeddingExtractor embeddings) throws IOException {
+			append(out, open);
+			int depth = 1;
+			while (depth > 0) {
+				int c = read();
+				switch (c) {
+					case -1:
+						throw error("unexpected end of file");
+					case '"':
+						int start = out == null ? 0 : out.length();
+						readString(out);
+						if (embeddings != null && out != null && endsWith(out, start, EMBEDDINGS_KEY)
+						    && peekNonWhitespace() == ':') {
+							pos++;
+							out.append(":[]");
+							embeddings.extract(this);
+						}
+						break;
+					case '{':
+					case '[':
+						depth++;
+						append(out, (char) c);
+						break;
+					case '}':
+					case ']':
+						depth--;
+						append(out, (char) c);
+						break;
+					default:
+						append(out, (char) c);
+				}
+			}
+		}
+
+
+		/** reads the remainder of a number, boolean or null. */
+		private void readLiteral(StringBuilder out) throws IOException {
+			while (true) {
+				int c = peek();
+				if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+					return;
+				}
+				pos++;
+				append(out, (char) c);
+			}
+		}
+
+
+		/** reads the 4 hex digits of a unicode escape. */
+		private int readHex() throws IOException {
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw error("invalid unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			return value;
+		}
+
+
+		/** @return <code>true</code> if <code>sb</code> from <code>start</code> is exactly <code>s</code>. */
+		private static boolean endsWith(StringBuilder sb, int start, String s) {
+			if (sb.length() - start != s.length()) {
+				return false;
+			}
+			for (int i = 0; i < s.length(); i++) {
+				if (sb.charAt(start + i) != s.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+
+		private static void append(StringBuilder out, char c) {
+			if (out != null) {
+				out.append(c);
+			}
+		}
+
+
+		private void expect(char expected) throws IOException {
+			int c = peekNonWhitespace();
+			if (c != expected) {
+				throw error("expected '" + expected + "'");
+			}
+			pos++;
+		}
+
+
+		private int peekNonWhitespace() throws IOException {
+			while (true) {
+				int c = peek();
+				if (c == -1 || !Character.isWhitespace(c)) {
+					return c;
+				}
+				pos++;
+			}
+		}
+
+
+		private int peek() throws IOException {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			return buffer[pos];
+		}
+
+
+		private int read() throws IOException {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			return buffer[pos++];
+		}
+
+
+		private boolean fill() throws IOException {
+			offset += limit;
+			pos = 0;
+			limit = 0;
+			int read = reader.read(buffer);
+			if (read <= 0) {
+				return false;
+			}
+			limit = read;
+			return true;
+		}
+
+
+		private BehaveModelException error(String message) {
+			return new BehaveModelException("Failed to parse Behave JSON: " + message + " at character " +
+			                                (offset + pos));
+		}
+
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
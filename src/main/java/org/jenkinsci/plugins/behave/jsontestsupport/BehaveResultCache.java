@@ -0,0 +1,233 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of the loaded {@link BehaveTestResult}s of every build on the controller.
+ * <p>
+ * The cache holds results up to a budget of their estimated heap size and evicts the least recently used results
+ * when it is exceeded. The budget defaults to a tenth of the maximum heap and can be set with the
+ * <code>org.jenkinsci.plugins.behave.jsontestsupport.BehaveResultCache.maxBytes</code> system property or changed
+ * at runtime with {@link #setMaxBytes(long)}.
+ * 
+ * @author James Nord
+ */
+public final class BehaveResultCache {
+
+	private static final Logger LOGGER = Logger.getLogger(BehaveResultCache.class.getName());
+
+	private static final BehaveResultCache INSTANCE = new BehaveResultCache(
+	      Long.getLong(BehaveResultCache.class.getName() + ".maxBytes", Runtime.getRuntime().maxMemory() / 10));
+
+	/** The cached results in least recently used order. */
+	private final LinkedHashMap<String, Entry> results = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long maxBytes;
+	private long size;
+
+	private long hitCount;
+	private long missCount;
+	private long loadCount;
+	private long loadNanos;
+	private long evictionCount;
+
+
+	BehaveResultCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+
+	/**
+	 * @return the cache shared by every build.
+	 */
+	public static BehaveResultCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Get a result from the cache.
+	 * 
+	 * @param key the key of the build.
+	 * @return the result or <code>null</code> if it is not cached.
+	 */
+	synchronized BehaveTestResult get(String key) {
+		Entry entry = results.get(key);
+		if (entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		// parts of the result may have been loaded since it was last weighed.
+		long weight = entry.result.getEstimatedSize();
+		size += weight - entry.weight;
+		entry.weight = weight;
+		evict(key);
+		return entry.result;
+	}
+
+
+	/**
+	 * Add a result that has just been loaded from disk.
+	 * 
+	 * @param key the key of the build.
+	 * @param result the result.
+	 * @param nanos the time taken to load the result.
+	 */
+	synchronized void loaded(String key, BehaveTestResult result, long nanos) {
+		loadCount++;
+		loadNanos += nanos;
+		put(key, result);
+	}
+
+
+	/**
+	 * Add or replace a result.
+	 * 
+	 * @param key the key of the build.
+	 * @param result the result.
+	 */
+	synchronized void put(String key, BehaveTestResult result) {
+		Entry entry = new Entry(result);
+		Entry old = results.put(key, entry);
+		if (old != null) {
+			size -= old.weight;
+		}
+		size += entry.weight;
+		evict(key);
+	}
+
+
+	/**
+	 * Remove a result.
+	 * 
+	 * @param key the key of the build.
+	 */
+	synchronized void invalidate(String key) {
+		Entry old = results.remove(key);
+		if (old != null) {
+			size -= old.weight;
+		}
+	}
+
+
+	/**
+	 * Evict the least recently used results until the cache is within budget. The result that is being used is
+	 * kept even if it is bigger than the budget on its own.
+	 */
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, Entry>> it = results.entrySet().iterator();
+		while (size > maxBytes && it.hasNext()) {
+			Map.Entry<String, Entry> e = it.next();
+			if (e.getKey().equals(keep)) {
+				continue;
+			}
+			it.remove();
+			size -= e.getValue().weight;
+			evictionCount++;
+			LOGGER.log(Level.FINE, "Evicted behave result {0}", e.getKey());
+		}
+	}
+
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evict(null);
+	}
+
+
+	/**
+	 * @return the estimated size in bytes of all the cached results.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+
+	public synchronized int getResultCount() {
+		return results.size();
+	}
+
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+
+	public synchronized long getLoadCount() {
+		return loadCount;
+	}
+
+
+	/**
+	 * @return the total time spent loading results in milliseconds.
+	 */
+	public synchronized long getTotalLoadTime() {
+		return TimeUnit.NANOSECONDS.toMillis(loadNanos);
+	}
+
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		return "BehaveResultCache[results=" + results.size() + ", size=" + size + ", maxBytes=" + maxBytes +
+		       ", hits=" + hitCount + ", misses=" + missCount + ", loads=" + loadCount + ", loadTime=" +
+		       getTotalLoadTime() + "ms, evictions=" + evictionCount + "]";
+	}
+
+
+	private static final class Entry {
+
+		final BehaveTestResult result;
+
+		long weight;
+
+
+		Entry(BehaveTestResult result) {
+			this.result = result;
+			this.weight = result.getEstimatedSize();
+		}
+	}
+}
@@ -0,0 +1,1018 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import behave.gherkin.formatter.Argument;
+import behave.gherkin.formatter.model.Background;
+import behave.gherkin.formatter.model.Comment;
+import behave.gherkin.formatter.model.DataTableRow;
+import behave.gherkin.formatter.model.DocString;
+import behave.gherkin.formatter.model.Feature;
+import behave.gherkin.formatter.model.Match;
+import behave.gherkin.formatter.model.Result;
+import behave.gherkin.formatter.model.Scenario;
+import behave.gherkin.formatter.model.Step;
+import behave.gherkin.formatter.model.Tag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compact binary representation of a {@link BehaveTestResult}.
+ * <p>
+ * The file starts with a magic number and a format version followed by the features. All counts, lines and
+ * durations are written as variable length integers and step statuses as a single byte. Every string is written
+ * in full the first time it is seen and as a reference in to a string table after that, so the repeated step
+ * text, keywords, tags and locations of a large suite are only stored once.
+ * <p>
+ * Files are gzip compressed. A file of any other version is rejected rather than converted, the result of a build
+ * is only ever read by the version of the plugin that wrote it or by a later one with the same format.
+ *
+ * @author James Nord
+ */
+final class BehaveResultFormat {
+
+	/** "BHVR" */
+	static final int MAGIC = 0x42485652;
+
+	/** The version that is written and the only version that is read. */
+	static final int VERSION = 1;
+
+	/** The name of the index file in a directory written by {@link #writeSegments(BehaveTestResult, File)}. */
+	static final String INDEX_FILE_NAME = "index.bin";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * A rough ratio of the heap used by the model to its size in this format, the strings are no longer shared and
+	 * every object has a header and references.
+	 */
+	private static final int HEAP_EXPANSION = 8;
+
+	/** status codes - 0 is reserved for a status that is written out in full. */
+	private static final String[] STATUSES = {null, BehaveUtils.PASSED_TEST_STRING, BehaveUtils.FAILED_TEST_STRING,
+	                                          BehaveUtils.SKIPPED_TEST_STRING, BehaveUtils.UNDEFINED_TEST_STRING,
+	                                          BehaveUtils.PENDING_TEST_STRING};
+
+
+	/** Orders scenario references by feature and then by scenario. */
+	private static final Comparator<int[]> REF_ORDER = new Comparator<int[]>() {
+		@Override
+		public int compare(int[] a, int[] b) {
+			return a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]);
+		}
+	};
+
+
+	private BehaveResultFormat() {
+	}
+
+
+	/**
+	 * Write the result as a set of segments in the given directory. Each feature and its scenarios are written to
+	 * their own segment and an index holding the counts of every feature, the failed scenarios and the scenarios of
+	 * every tag is written last, so a result can be displayed and navigated whilst only reading the features that
+	 * are actually looked at.
+	 *
+	 * @param result the tallied result to write.
+	 * @param dir the directory to write to, it will be created if it does not exist.
+	 * @throws IOException if the segments could not be written.
+	 */
+	static void writeSegments(BehaveTestResult result, File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Failed to create " + dir);
+		}
+		Collection<FeatureResult> features = result.getFeatures();
+		int i = 0;
+		for (FeatureResult fr : features) {
+			try (OutputStream os = openForWrite(getSegmentFile(dir, i++))) {
+				ResultOutput out = new ResultOutput(os);
+				out.writeHeader();
+				out.writeFeature(fr);
+			}
+		}
+		try (OutputStream os = openForWrite(new File(dir, INDEX_FILE_NAME))) {
+			ResultOutput out = new ResultOutput(os);
+			out.writeHeader();
+			out.writeCount(features.size());
+			for (FeatureResult fr : features) {
+				out.writeFeatureIndex(fr);
+			}
+			out.writeIndexes(result);
+		}
+	}
+
+
+	/**
+	 * Read the index of a result that was previously written with {@link #writeSegments(BehaveTestResult, File)}.
+	 * The scenarios of each feature are only read from their segment when they are first needed.
+	 *
+	 * @param dir the directory the segments were written to.
+	 * @return the result, which has no owner.
+	 * @throws IOException if the index could not be read or is not in a supported format.
+	 */
+	static BehaveTestResult readSegments(File dir) throws IOException {
+		File index = new File(dir, INDEX_FILE_NAME);
+		try (InputStream is = openForRead(index)) {
+			ResultInput in = new ResultInput(is);
+			in.readHeader();
+			BehaveTestResult result = new BehaveTestResult();
+			int features = in.readCount();
+			for (int i = 0; i < features; i++) {
+				result.addFeatureResult(in.readFeatureIndex(getSegmentFile(dir, i)));
+			}
+			in.readIndexes(result);
+			return result;
+		}
+		catch (RuntimeException ex) {
+			throw new IOException("Corrupt behave result " + index, ex);
+		}
+	}
+
+
+	/**
+	 * Read a single feature segment written by {@link #writeSegments(BehaveTestResult, File)}.
+	 *
+	 * @param segment the segment to read.
+	 * @param pool the pool to share the strings of the segment with the rest of the result.
+	 * @return the feature with all of its scenarios.
+	 * @throws IOException if the segment could not be read or is not in a supported format.
+	 */
+	static FeatureResult readSegment(File segment, StringPool pool) throws IOException {
+		try (InputStream is = openForRead(segment)) {
+			ResultInput in = new ResultInput(is, pool);
+			in.readHeader();
+			return in.readFeature();
+		}
+		catch (RuntimeException ex) {
+			throw new IOException("Corrupt behave result " + segment, ex);
+		}
+	}
+
+
+	/**
+	 * Write the summary of a result to the given file.
+	 *
+	 * @param summary the summary to write.
+	 * @param file the file to write to, any existing file will be overwritten.
+	 * @throws IOException if the file could not be written.
+	 */
+	static void writeSummary(BehaveResultSummary summary, File file) throws IOException {
+		try (OutputStream os = openForWrite(file)) {
+			ResultOutput out = new ResultOutput(os);
+			out.writeHeader();
+			out.writeCount(summary.getFeatureCount());
+			out.writeCount(summary.getPassCount());
+			out.writeCount(summary.getFailCount());
+			out.writeCount(summary.getSkipCount());
+			out.writeVarLong(Float.floatToIntBits(summary.getDuration()) & 0xFFFFFFFFL);
+			List<String> failed = summary.getFailedScenarioIds();
+			out.writeCount(failed.size());
+			for (String id : failed) {
+				out.writeString(id);
+			}
+			List<BehaveResultSummary.TagTotal> tags = summary.getTagTotals();
+			out.writeCount(tags.size());
+			for (BehaveResultSummary.TagTotal tag : tags) {
+				out.writeString(tag.getTagName());
+				out.writeCount(tag.getPassCount());
+				out.writeCount(tag.getFailCount());
+				out.writeCount(tag.getSkipCount());
+			}
+		}
+	}
+
+
+	/**
+	 * Read a summary that was previously written with {@link #writeSummary(BehaveResultSummary, File)}.
+	 *
+	 * @param file the file to read.
+	 * @return the summary.
+	 * @throws IOException if the file could not be read or is not in a supported format.
+	 */
+	static BehaveResultSummary readSummary(File file) throws IOException {
+		try (InputStream is = openForRead(file)) {
+			ResultInput in = new ResultInput(is);
+			in.readHeader();
+			int features = in.readCount();
+			int pass = in.readCount();
+			int fail = in.readCount();
+			int skip = in.readCount();
+			float duration = Float.intBitsToFloat((int) in.readVarLong());
+			int count = in.readCount();
+			List<String> failed = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				failed.add(in.readString());
+			}
+			count = in.readCount();
+			List<BehaveResultSummary.TagTotal> tags = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String name = in.readString();
+				tags.add(new BehaveResultSummary.TagTotal(name, in.readCount(), in.readCount(), in.readCount()));
+			}
+			return new BehaveResultSummary(features, pass, fail, skip, duration, failed, tags);
+		}
+	}
+
+
+	/**
+	 * Open a file for writing. The stream is buffered, compressed and forces the content on to the disk when it is
+	 * closed, so a file that is then renamed in to place can not be seen partially written after a crash.
+	 * The directory of the file is created if it does not exist, as it does not for a build whose result was stored
+	 * by an older version of the plugin.
+	 */
+	private static OutputStream openForWrite(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Failed to create " + parent);
+		}
+		final FileOutputStream fos = new FileOutputStream(file);
+		final GZIPOutputStream gzip;
+		try {
+			gzip = new GZIPOutputStream(fos, 64 * 1024) {
+				{
+					// the model is very repetitive so the fastest level still does well.
+					def.setLevel(Deflater.BEST_SPEED);
+				}
+			};
+		}
+		catch (IOException ex) {
+			fos.close();
+			throw ex;
+		}
+		return new BufferedOutputStream(gzip, 64 * 1024) {
+			@Override
+			public void close() throws IOException {
+				try {
+					flush();
+					gzip.finish();
+					fos.getFD().sync();
+				}
+				finally {
+					super.close();
+				}
+			}
+		};
+	}
+
+
+	/**
+	 * Open a file for reading, decompressing it.
+	 */
+	private static InputStream openForRead(File file) throws IOException {
+		InputStream is = new FileInputStream(file);
+		try {
+			return new BufferedInputStream(new GZIPInputStream(is, 64 * 1024), 64 * 1024);
+		}
+		catch (IOException ex) {
+			// not a gzip file.
+			is.close();
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * Estimate the heap that will be used by the model read from the given file.
+	 *
+	 * @param file a file written in this format.
+	 * @return the estimated size in bytes.
+	 */
+	static long estimateHeapSize(File file) {
+		long length = file.length();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			if (length > 18 && raf.read() == (GZIPInputStream.GZIP_MAGIC & 0xFF) &&
+			    raf.read() == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+				// the gzip trailer ends with the uncompressed size (modulo 2^32) in little endian order.
+				raf.seek(length - 4);
+				length = (raf.read() | (raf.read() << 8) | (raf.read() << 16) | ((long) raf.read() << 24));
+			}
+		}
+		catch (IOException ex) {
+			// the compressed size is better than nothing
+		}
+		return length * HEAP_EXPANSION;
+	}
+
+
+	static File getSegmentFile(File dir, int feature) {
+		return new File(dir, "feature-" + feature + ".bin");
+	}
+
+
+	/**
+	 * Encodes the model on to a stream.
+	 */
+	static final class ResultOutput {
+
+		private final OutputStream out;
+
+		private final Map<String, Integer> strings = new HashMap<>();
+
+
+		ResultOutput(OutputStream out) {
+			this.out = out;
+		}
+
+
+		void writeHeader() throws IOException {
+			out.write(MAGIC >>> 24);
+			out.write(MAGIC >>> 16);
+			out.write(MAGIC >>> 8);
+			out.write(MAGIC);
+			writeVarLong(VERSION);
+		}
+
+
+		void writeFeature(FeatureResult fr) throws IOException {
+			writeFeatureHeader(fr);
+			Collection<ScenarioResult> scenarios = fr.getScenarioResults();
+			writeCount(scenarios.size());
+			for (ScenarioResult sr : scenarios) {
+				writeScenario(sr);
+			}
+		}
+
+
+		/**
+		 * Write the failed scenarios and the tags of the result, referring to each scenario by the index of its
+		 * feature and its index in the feature.
+		 */
+		void writeIndexes(BehaveTestResult result) throws IOException {
+			Map<ScenarioResult, int[]> refs = new IdentityHashMap<>();
+			int f = 0;
+			for (FeatureResult fr : result.getFeatures()) {
+				int i = 0;
+				for (ScenarioResult sr : fr.getScenarioResults()) {
+					refs.put(sr, new int[] {f, i++});
+				}
+				f++;
+			}
+			writeRefs(result.getFailedTests(), refs);
+			// sorted so the index is the same for every write of the result.
+			Map<String, TagResult> tags = new TreeMap<>(result.getTagMap());
+			writeCount(tags.size());
+			for (TagResult tr : tags.values()) {
+				writeString(tr.getName());
+				writeCount(tr.getPassCount());
+				writeCount(tr.getFailCount());
+				writeCount(tr.getSkipCount());
+				writeVarLong(Float.floatToIntBits(tr.getDuration()) & 0xFFFFFFFFL);
+				writeRefs(tr.getScenarioResults(), refs);
+			}
+		}
+
+
+		private void writeRefs(Collection<ScenarioResult> scenarios, Map<ScenarioResult, int[]> refs)
+		      throws IOException {
+			List<int[]> sorted = new ArrayList<>(scenarios.size());
+			for (ScenarioResult sr : scenarios) {
+				int[] ref = refs.get(sr);
+				if (ref == null) {
+					throw new IOException("Scenario " + sr.getName() + " is not part of the result");
+				}
+				sorted.add(ref);
+			}
+			Collections.sort(sorted, REF_ORDER);
+			writeCount(sorted.size());
+			for (int[] ref : sorted) {
+				writeCount(ref[0]);
+				writeCount(ref[1]);
+			}
+		}
+
+
+		/**
+		 * Writes the index entry of a feature - everything that is needed to display it in a list of features
+		 * without its scenarios.
+		 */
+		void writeFeatureIndex(FeatureResult fr) throws IOException {
+			writeString(fr.getSafeName());
+			writeFeatureHeader(fr);
+			writeCount(fr.getScenarioCount());
+			writeCount(fr.getPassCount());
+			writeCount(fr.getFailCount());
+			writeCount(fr.getSkipCount());
+			writeVarLong(Float.floatToIntBits(fr.getDuration()) & 0xFFFFFFFFL);
+		}
+
+
+		private void writeFeatureHeader(FeatureResult fr) throws IOException {
+			writeString(fr.getURI());
+			Feature f = fr.getFeature();
+			writeComments(f.getComments());
+			writeTags(f.getTags());
+			writeString(f.getKeyword());
+			writeString(f.getName());
+			writeString(f.getDescription());
+			writeLine(f.getLine());
+			writeString(f.getId());
+		}
+
+
+		void writeScenario(ScenarioResult sr) throws IOException {
+			ScenarioResult detailed = sr.getDetailedResult();
+			if (detailed == null) {
+				throw new IOException("The details of scenario " + sr.getName() + " could not be read");
+			}
+			Scenario s = detailed.getScenario();
+			writeComments(s.getComments());
+			writeTags(s.getTags());
+			writeString(s.getKeyword());
+			writeString(s.getName());
+			writeString(s.getDescription());
+			writeLine(s.getLine());
+			writeString(s.getId());
+
+			BackgroundResult bgr = detailed.getBackgroundResult();
+			if (bgr == null) {
+				out.write(0);
+			}
+			else {
+				out.write(1);
+				Background bg = bgr.getBackground();
+				writeComments(bg.getComments());
+				writeString(bg.getKeyword());
+				writeString(bg.getName());
+				writeString(bg.getDescription());
+				writeLine(bg.getLine());
+				writeSteps(bgr.getStepResults());
+			}
+			writeBeforeAfters(detailed.getBeforeResults());
+			writeSteps(detailed.getStepResults());
+			writeBeforeAfters(detailed.getAfterResults());
+
+			List<EmbeddedItem> items = sr.getEmbeddedItems();
+			writeCount(items.size());
+			for (EmbeddedItem item : items) {
+				writeString(item.getMimetype());
+				writeString(item.getFilename());
+				writeString(item.getDigest());
+			}
+			writeVarLong(sr.getStoredFailedSince());
+			// the outcome so that the steps do not need to be walked when the scenario is loaded.
+			sr.tally();
+			out.write(sr.getFailCount() != 0 ? 1 : sr.getSkipCount() != 0 ? 2 : 0);
+			writeVarLong(Float.floatToIntBits(sr.getDuration()) & 0xFFFFFFFFL);
+			// so that the scenarios do not need to be named again, nor differently, when they are read back.
+			writeString(sr.getSafeName());
+		}
+
+
+		private void writeSteps(Collection<StepResult> steps) throws IOException {
+			writeCount(steps.size());
+			for (StepResult step : steps) {
+				writeStep(step.getStep());
+				writeMatch(step.getMatch());
+				writeResult(step.getResult());
+			}
+		}
+
+
+		private void writeBeforeAfters(Collection<BeforeAfterResult> results) throws IOException {
+			writeCount(results.size());
+			for (BeforeAfterResult bar : results) {
+				writeMatch(bar.getMatch());
+				writeResult(bar.getResult());
+			}
+		}
+
+
+		private void writeStep(Step step) throws IOException {
+			if (step == null) {
+				out.write(0);
+				return;
+			}
+			out.write(1);
+			writeComments(step.getComments());
+			writeString(step.getKeyword());
+			writeString(step.getName());
+			writeLine(step.getLine());
+			List<DataTableRow> rows = step.getRows();
+			writeNullableCount(rows);
+			if (rows != null) {
+				for (DataTableRow row : rows) {
+					writeComments(row.getComments());
+					writeStrings(row.getCells());
+					writeLine(row.getLine());
+				}
+			}
+			DocString docString = step.getDocString();
+			if (docString == null) {
+				out.write(0);
+			}
+			else {
+				out.write(1);
+				writeString(docString.getContentType());
+				writeString(docString.getValue());
+				writeLine(docString.getLine());
+			}
+		}
+
+
+		private void writeMatch(Match match) throws IOException {
+			if (match == null) {
+				out.write(0);
+				return;
+			}
+			out.write(1);
+			List<Argument> args = match.getArguments();
+			writeNullableCount(args);
+			if (args != null) {
+				for (Argument arg : args) {
+					writeLine(arg.getOffset());
+					writeString(arg.getVal());
+				}
+			}
+			writeString(match.getLocation());
+		}
+
+
+		private void writeResult(Result result) throws IOException {
+			if (result == null) {
+				out.write(0xFF);
+				return;
+			}
+			String status = result.getStatus();
+			int code = 0;
+			for (int i = 1; i < STATUSES.length; i++) {
+				if (STATUSES[i].equals(status)) {
+					code = i;
+					break;
+				}
+			}
+			out.write(code);
+			if (code == 0) {
+				writeString(status);
+			}
+			Long duration = result.getDuration();
+			// durations are never negative, but be safe and zig-zag them anyway. 0 is reserved for null.
+			writeVarLong(duration == null ? 0 : ((duration << 1) ^ (duration >> 63)) + 1);
+			writeStrings(result.getErrorMessage());
+		}
+
+
+		private void writeComments(List<Comment> comments) throws IOException {
+			writeNullableCount(comments);
+			if (comments != null) {
+				for (Comment c : comments) {
+					writeString(c.getValue());
+					writeLine(c.getLine());
+				}
+			}
+		}
+
+
+		private void writeTags(List<Tag> tags) throws IOException {
+			writeNullableCount(tags);
+			if (tags != null) {
+				for (Tag t : tags) {
+					writeString(t.getName());
+					writeLine(t.getLine());
+				}
+			}
+		}
+
+
+		private void writeStrings(List<String> strs) throws IOException {
+			writeNullableCount(strs);
+			if (strs != null) {
+				for (String s : strs) {
+					writeString(s);
+				}
+			}
+		}
+
+
+		/**
+		 * Strings are written as a reference to the string table (offset by one as 0 is <code>null</code>). A
+		 * reference one past the end of the table is followed by the string itself which then joins the table.
+		 */
+		void writeString(String s) throws IOException {
+			if (s == null) {
+				writeVarLong(0);
+				return;
+			}
+			Integer idx = strings.get(s);
+			if (idx != null) {
+				writeVarLong(idx.intValue() + 1);
+				return;
+			}
+			idx = Integer.valueOf(strings.size());
+			strings.put(s, idx);
+			writeVarLong(idx.intValue() + 1);
+			byte[] bytes = s.getBytes(UTF8);
+			writeVarLong(bytes.length);
+			out.write(bytes);
+		}
+
+
+		private void writeLine(Integer line) throws IOException {
+			writeVarLong(line == null ? 0 : line.longValue() + 1);
+		}
+
+
+		private void writeNullableCount(Collection<?> c) throws IOException {
+			writeVarLong(c == null ? 0 : c.size() + 1);
+		}
+
+
+		void writeCount(int count) throws IOException {
+			writeVarLong(count);
+		}
+
+
+		void writeVarLong(long value) throws IOException {
+			while ((value & ~0x7FL) != 0) {
+				out.write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.write((int) value);
+		}
+	}
+
+
+	/**
+	 * Decodes the model from a stream written by {@link ResultOutput}.
+	 */
+	static final class ResultInput {
+
+		private final InputStream in;
+
+		private final List<String> strings = new ArrayList<>();
+
+		/** 
+		 * Shares the strings with the rest of the result, the string table only deduplicates within a single file.
+		 */
+		private final StringPool pool;
+
+
+		ResultInput(InputStream in) {
+			this(in, new StringPool());
+		}
+
+
+		ResultInput(InputStream in, StringPool pool) {
+			this.in = in;
+			this.pool = pool;
+		}
+
+
+		void readHeader() throws IOException {
+			int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+			if (magic != MAGIC) {
+				throw new IOException("Not a behave result file");
+			}
+			long version = readVarLong();
+			if (version != VERSION) {
+				throw new IOException("Unsupported behave result format version " + version);
+			}
+		}
+
+
+		FeatureResult readFeature() throws IOException {
+			FeatureResult fr = readFeatureHeader();
+			int scenarios = readCount();
+			for (int i = 0; i < scenarios; i++) {
+				fr.addScenarioResult(readScenario());
+			}
+			return fr;
+		}
+
+
+		/**
+		 * Read the indexes written by {@link ResultOutput#writeIndexes(BehaveTestResult)} in to the result.
+		 */
+		void readIndexes(BehaveTestResult result) throws IOException {
+			int[] failed = readRefs();
+			int count = readCount();
+			List<TagResult> tags = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				TagResult tr = new TagResult(readString());
+				int pass = readCount();
+				int fail = readCount();
+				int skip = readCount();
+				float duration = Float.intBitsToFloat((int) readVarLong());
+				tr.setStored(readRefs(), pass, fail, skip, duration);
+				tags.add(tr);
+			}
+			result.setIndexes(failed, tags);
+		}
+
+
+		private int[] readRefs() throws IOException {
+			int[] refs = new int[readCount() * 2];
+			for (int i = 0; i < refs.length; i++) {
+				refs[i] = readCount();
+			}
+			return refs;
+		}
+
+
+		/**
+		 * Reads an index entry written by {@link ResultOutput#writeFeatureIndex(FeatureResult)}.
+		 *
+		 * @param segment the file the scenarios of the feature will be loaded from.
+		 */
+		FeatureResult readFeatureIndex(File segment) throws IOException {
+			String safeName = readString();
+			FeatureResult fr = readFeatureHeader();
+			fr.setSafeName(safeName);
+			int scenarios = readCount();
+			int pass = readCount();
+			int fail = readCount();
+			int skip = readCount();
+			float duration = Float.intBitsToFloat((int) readVarLong());
+			fr.setSegment(segment, pool, scenarios, pass, fail, skip, duration);
+			return fr;
+		}
+
+
+		private FeatureResult readFeatureHeader() throws IOException {
+			String uri = readString();
+			List<Comment> comments = readComments();
+			List<Tag> tags = readTags();
+			Feature f = new Feature(comments, tags, readString(), readString(), readString(), readLine(),
+			                        readString());
+			return new FeatureResult(uri, f);
+		}
+
+
+		ScenarioResult readScenario() throws IOException {
+			List<Comment> comments = readComments();
+			List<Tag> tags = readTags();
+			Scenario s = new Scenario(comments, tags, readString(), readString(), readString(), readLine(),
+			                          readString());
+			BackgroundResult bgr = null;
+			if (readByte() != 0) {
+				List<Comment> bgComments = readComments();
+				Background bg = new Background(bgComments, readString(), readString(), readString(), readLine());
+				bgr = new BackgroundResult(bg);
+				int steps = readCount();
+				for (int i = 0; i < steps; i++) {
+					bgr.addStepResult(readStepResult());
+				}
+			}
+			ScenarioResult sr = new ScenarioResult(s, bgr);
+			int befores = readCount();
+			for (int i = 0; i < befores; i++) {
+				Match m = readMatch();
+				sr.addBeforeResult(new BeforeAfterResult(m, readResult(), pool));
+			}
+			int steps = readCount();
+			for (int i = 0; i < steps; i++) {
+				sr.addStepResult(readStepResult());
+			}
+			int afters = readCount();
+			for (int i = 0; i < afters; i++) {
+				Match m = readMatch();
+				sr.addAfterResult(new BeforeAfterResult(m, readResult(), pool));
+			}
+			int items = readCount();
+			for (int i = 0; i < items; i++) {
+				String mimetype = readString();
+				String filename = readString();
+				sr.addEmbeddedItem(new EmbeddedItem(mimetype, filename, readString()));
+			}
+			sr.setFailedSince((int) readVarLong());
+			int outcome = readByte();
+			sr.setTally(outcome == 1, outcome == 2, Float.intBitsToFloat((int) readVarLong()));
+			sr.setSafeName(readString());
+			return sr;
+		}
+
+
+		private StepResult readStepResult() throws IOException {
+			Step step = readStep();
+			Match match = readMatch();
+			return new StepResult(step, match, readResult(), pool);
+		}
+
+
+		private Step readStep() throws IOException {
+			if (readByte() == 0) {
+				return null;
+			}
+			List<Comment> comments = readComments();
+			String keyword = readString();
+			String name = readString();
+			Integer line = readLine();
+			List<DataTableRow> rows = null;
+			int rowCount = readNullableCount();
+			if (rowCount >= 0) {
+				rows = new ArrayList<>(rowCount);
+				for (int i = 0; i < rowCount; i++) {
+					List<Comment> rowComments = readComments();
+					List<String> cells = readStrings();
+					rows.add(new DataTableRow(rowComments, cells, readLine()));
+				}
+			}
+			DocString docString = null;
+			if (readByte() != 0) {
+				docString = new DocString(readString(), readString(), readLine());
+			}
+			return new Step(comments, keyword, name, line, rows, docString);
+		}
+
+
+		private Match readMatch() throws IOException {
+			if (readByte() == 0) {
+				return null;
+			}
+			List<Argument> args = null;
+			int argCount = readNullableCount();
+			if (argCount >= 0) {
+				args = new ArrayList<>(argCount);
+				for (int i = 0; i < argCount; i++) {
+					Integer offset = readLine();
+					args.add(new Argument(offset, readString()));
+				}
+			}
+			return new Match(args, readString());
+		}
+
+
+		private Result readResult() throws IOException {
+			int code = readByte();
+			if (code == 0xFF) {
+				return null;
+			}
+			String status;
+			if (code == 0) {
+				status = readString();
+			}
+			else if (code < STATUSES.length) {
+				status = STATUSES[code];
+			}
+			else {
+				throw new IOException("Unknown step status " + code);
+			}
+			long encoded = readVarLong();
+			Long duration = null;
+			if (encoded != 0) {
+				encoded--;
+				duration = Long.valueOf((encoded >>> 1) ^ -(encoded & 1));
+			}
+			return new Result(status, duration, readStrings());
+		}
+
+
+		private List<Comment> readComments() throws IOException {
+			int count = readNullableCount();
+			if (count < 0) {
+				return null;
+			}
+			List<Comment> comments = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String value = readString();
+				comments.add(new Comment(value, readLine()));
+			}
+			return comments;
+		}
+
+
+		private List<Tag> readTags() throws IOException {
+			int count = readNullableCount();
+			if (count < 0) {
+				return null;
+			}
+			List<Tag> tags = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String name = readString();
+				tags.add(new Tag(name, readLine()));
+			}
+			return tags;
+		}
+
+
+		private List<String> readStrings() throws IOException {
+			int count = readNullableCount();
+			if (count < 0) {
+				return null;
+			}
+			List<String> strs = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				strs.add(readString());
+			}
+			return strs;
+		}
+
+
+		String readString() throws IOException {
+			long ref = readVarLong();
+			if (ref == 0) {
+				return null;
+			}
+			int idx = (int) (ref - 1);
+			if (idx < strings.size()) {
+				return strings.get(idx);
+			}
+			if (idx != strings.size()) {
+				throw new IOException("Invalid string reference " + idx);
+			}
+			int len = readCount();
+			byte[] bytes = new byte[len];
+			readFully(bytes);
+			String s = pool.intern(new String(bytes, UTF8));
+			strings.add(s);
+			return s;
+		}
+
+
+		private Integer readLine() throws IOException {
+			long l = readVarLong();
+			return l == 0 ? null : Integer.valueOf((int) (l - 1));
+		}
+
+
+		/** @return the count or -1 if the collection was <code>null</code>. */
+		private int readNullableCount() throws IOException {
+			return readCount() - 1;
+		}
+
+
+		int readCount() throws IOException {
+			long count = readVarLong();
+			if (count > Integer.MAX_VALUE) {
+				throw new IOException("Invalid count " + count);
+			}
+			return (int) count;
+		}
+
+
+		long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed variable length integer");
+		}
+
+
+		private int readByte() throws IOException {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			return b;
+		}
+
+
+		private void readFully(byte[] bytes) throws IOException {
+			int off = 0;
+			while (off < bytes.length) {
+				int read = in.read(bytes, off, bytes.length - off);
+				if (read < 0) {
+					throw new EOFException();
+				}
+				off += read;
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The totals of a {@link BehaveTestResult}, small enough to be read for every build on a page without loading the
+ * result itself.
+ * 
+ * @author James Nord
+ */
+@ExportedBean
+public final class BehaveResultSummary {
+
+	private final int featureCount;
+	private final int passCount;
+	private final int failCount;
+	private final int skipCount;
+	private final float duration;
+
+	/** The ids of the failed scenarios relative to the {@link BehaveTestResult}. */
+	private final List<String> failedScenarioIds;
+
+	private final List<TagTotal> tagTotals;
+
+
+	BehaveResultSummary(int featureCount, int passCount, int failCount, int skipCount, float duration,
+	                    List<String> failedScenarioIds, List<TagTotal> tagTotals) {
+		this.featureCount = featureCount;
+		this.passCount = passCount;
+		this.failCount = failCount;
+		this.skipCount = skipCount;
+		this.duration = duration;
+		this.failedScenarioIds = Collections.unmodifiableList(failedScenarioIds);
+		this.tagTotals = Collections.unmodifiableList(tagTotals);
+	}
+
+
+	/**
+	 * Create the summary of a tallied result.
+	 * 
+	 * @param result the result to summarise, all of its features will be loaded.
+	 * @return the summary.
+	 */
+	static BehaveResultSummary of(BehaveTestResult result) {
+		List<String> failed = new ArrayList<>();
+		for (ScenarioResult sr : result.getFailedTests()) {
+			failed.add(sr.getParent().getSafeName() + '/' + sr.getSafeName());
+		}
+		// sorted so the totals are in the same order for every build
+		Map<String, TagResult> tags = new TreeMap<>(result.getTagMap());
+		List<TagTotal> tagTotals = new ArrayList<>(tags.size());
+		for (TagResult tr : tags.values()) {
+			tagTotals.add(new TagTotal(tr.getName(), tr.getPassCount(), tr.getFailCount(), tr.getSkipCount()));
+		}
+		return new BehaveResultSummary(result.getFeatures().size(), result.getPassCount(), result.getFailCount(),
+		                               result.getSkipCount(), result.getDuration(), failed, tagTotals);
+	}
+
+
+	public int getFeatureCount() {
+		return featureCount;
+	}
+
+
+	@Exported(visibility = 2)
+	public int getPassCount() {
+		return passCount;
+	}
+
+
+	@Exported(visibility = 2)
+	public int getFailCount() {
+		return failCount;
+	}
+
+
+	@Exported(visibility = 2)
+	public int getSkipCount() {
+		return skipCount;
+	}
+
+
+	public int getTotalCount() {
+		return passCount + failCount + skipCount;
+	}
+
+
+	@Exported(visibility = 2)
+	public float getDuration() {
+		return duration;
+	}
+
+
+	/**
+	 * @return the ids of the failed scenarios in the form <code>feature/scenario</code>.
+	 */
+	@Exported(visibility = 2)
+	public List<String> getFailedScenarioIds() {
+		return failedScenarioIds;
+	}
+
+
+	/**
+	 * @return the totals of every tag ordered by the tag name.
+	 */
+	@Exported(visibility = 2)
+	public List<TagTotal> getTagTotals() {
+		return tagTotals;
+	}
+
+
+	/**
+	 * The totals of the scenarios with a given tag.
+	 */
+	@ExportedBean(defaultVisibility = 2)
+	public static final class TagTotal {
+
+		private final String tagName;
+		private final int passCount;
+		private final int failCount;
+		private final int skipCount;
+
+
+		TagTotal(String tagName, int passCount, int failCount, int skipCount) {
+			this.tagName = tagName;
+			this.passCount = passCount;
+			this.failCount = failCount;
+			this.skipCount = skipCount;
+		}
+
+
+		@Exported
+		public String getTagName() {
+			return tagName;
+		}
+
+
+		@Exported
+		public int getPassCount() {
+			return passCount;
+		}
+
+
+		@Exported
+		public int getFailCount() {
+			return failCount;
+		}
+
+
+		@Exported
+		public int getSkipCount() {
+			return skipCount;
+		}
+	}
+}
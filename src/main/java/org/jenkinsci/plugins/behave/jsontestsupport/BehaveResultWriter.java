@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Persists {@link BehaveTestResult}s in the background so that a build does not hold on to its executor whilst a
+ * large result is written.
+ * <p>
+ * The number of writer threads defaults to 2 and can be set with the
+ * <code>org.jenkinsci.plugins.behave.jsontestsupport.BehaveResultWriter.threads</code> system property. Only a few
+ * writes are queued for each thread, once the queue is full a build writes its own result so the results waiting
+ * to be written can not exhaust the heap.
+ * 
+ * @author James Nord
+ */
+public final class BehaveResultWriter {
+
+	private static final Logger LOGGER = Logger.getLogger(BehaveResultWriter.class.getName());
+
+	private static final int THREADS =
+	      Math.max(1, Integer.getInteger(BehaveResultWriter.class.getName() + ".threads", 2));
+
+	private static final ThreadPoolExecutor EXECUTOR =
+	      new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(THREADS * 4),
+	                             new NamingThreadFactory(new DaemonThreadFactory(), "Behave result writer"),
+	                             new ThreadPoolExecutor.CallerRunsPolicy());
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+
+	private BehaveResultWriter() {
+	}
+
+
+	/**
+	 * Run a write in the background.
+	 * 
+	 * @param write the write to run.
+	 * @return a future that completes once the write has finished.
+	 */
+	static Future<?> submit(Runnable write) {
+		if (EXECUTOR.isShutdown()) {
+			// the rejection policy would silently drop the write once we have been shutdown.
+			FutureTask<Void> task = new FutureTask<>(write, null);
+			task.run();
+			return task;
+		}
+		return EXECUTOR.submit(write);
+	}
+
+
+	/**
+	 * Wait for the queued writes to finish before Jenkins exits.
+	 * 
+	 * @throws InterruptedException if interrupted whilst waiting.
+	 */
+	@Terminator
+	public static void awaitPendingWrites() throws InterruptedException {
+		EXECUTOR.shutdown();
+		if (!EXECUTOR.awaitTermination(1, TimeUnit.MINUTES)) {
+			LOGGER.warning("Timed out waiting for the Behave test results to be written.");
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases what is held for a build when it is deleted: its references in the {@link EmbedStore} of the job, its
+ * runs in the {@link ScenarioHistory} of the job, its result in the {@link BehaveResultCache} and its pages in
+ * the {@link ScenarioHTMLCache}.
+ *
+ * @author James Nord
+ */
+@Extension
+public class BehaveRunListener extends RunListener<Run> {
+
+	private static final Logger LOGGER = Logger.getLogger(BehaveRunListener.class.getName());
+
+	public BehaveRunListener() {
+		super(Run.class);
+	}
+
+	@Override
+	public void onDeleted(Run r) {
+		BehaveResultCache.getInstance().invalidate(BehaveTestResultAction.getCacheKey(r));
+		ScenarioHTMLCache.getInstance().invalidate(BehaveTestResultAction.getCacheKey(r));
+		if (new File(r.getParent().getRootDir(), ScenarioHistory.FILE_NAME).exists()) {
+			try {
+				ScenarioHistory.of(r.getParent()).forget(r.getNumber());
+			}
+			catch (IOException ex) {
+				LOGGER.log(Level.WARNING, "Failed to remove " + r.getFullDisplayName() + " from the scenario history", ex);
+			}
+		}
+		if (!new File(r.getRootDir(), EmbedStore.DIGESTS_FILE_NAME).exists()) {
+			return;
+		}
+		try {
+			EmbedStore.of(r.getParent()).removeReferences(r.getRootDir());
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Failed to release the embedded items of " + r.getFullDisplayName(), ex);
+		}
+	}
+}
@@ -28,6 +28,7 @@ import hudson.model.AbstractBuild;
 import hudson.tasks.test.MetaTabulatedResult;
 import hudson.tasks.test.TestObject;
 import hudson.tasks.test.TestResult;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -38,6 +39,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -54,6 +58,11 @@ public class BehaveTestResult extends MetaTabulatedResult {
 	
 	private static final long serialVersionUID = 349901779968603675L;
 
+	private static final Logger LOGGER = Logger.getLogger(BehaveTestResult.class.getName());
+
+	private static final AtomicLongFieldUpdater<BehaveTestResult> ESTIMATED_SIZE =
+	      AtomicLongFieldUpdater.newUpdater(BehaveTestResult.class, "estimatedSize");
+
 	private final List<FeatureResult> featureResults = new ArrayList<>();
 
 	/**
@@ -64,15 +73,31 @@ public class BehaveTestResult extends MetaTabulatedResult {
 	
 	/** 
 	 * List of all failed ScenarioResults.
-	 * Recomputed by a call to {@link BehaveTestResult#tally()}
+	 * Reset by a call to {@link BehaveTestResult#tally()} and recomputed when first needed, as this requires
+	 * loading the scenarios of every failed feature.
+	 */
+	private transient List<ScenarioResult> failedScenarioResults;
+
+	/**
+	 * The failed scenarios as they were stored, as pairs of the index of the feature and the index of the scenario
+	 * in the feature, or <code>null</code> if they were not stored or have been resolved.
 	 */
-	private transient List<ScenarioResult> failedScenarioResults = new ArrayList<>();
+	private transient int[] failedScenarioRefs;
 
 	/** 
 	 * map of Tags to Scenarios. 
-	 * recomputed by a call to {@link BehaveTestResult#tally()}
+	 * Reset by a call to {@link BehaveTestResult#tally()} and recomputed when first needed, as this requires
+	 * loading the scenarios of every feature.
 	 */
-	private transient Map<String, TagResult> tagMap =  new HashMap<>();
+	private transient Map<String, TagResult> tagMap;
+
+	/** Names the features of this result, created when they are first named. */
+	private transient SafeNameAllocator featureNames;
+
+	/** The tables of the features, failed scenarios and tags, created when they are first shown. */
+	private transient ResultTable childTable;
+	private transient ResultTable failedTable;
+	private transient ResultTable tagTable;
 
 	private transient AbstractBuild<?, ?> owner;
 	
@@ -82,10 +107,143 @@ public class BehaveTestResult extends MetaTabulatedResult {
 	private transient int skipCount;
 	private transient float duration;
 
+	/** 
+	 * <code>false</code> if features have been added or changed since the last {@link #tally()}.
+	 * Cleared without holding the lock as scenarios are added to features whilst their own lock is held.
+	 */
+	private transient volatile boolean tallied;
+
+	/**
+	 * The directory that the features have not yet been loaded from, or <code>null</code> if the features are in
+	 * memory.
+	 */
+	private transient File segmentDir;
+
+	/** The number of features in the {@link #segmentDir}. */
+	private transient int segmentFeatureCount;
+
+	/** 
+	 * The estimated heap used by the parts of this result that have been loaded.
+	 * Updated without holding the lock as features are loaded whilst their own lock is held.
+	 */
+	private transient volatile long estimatedSize;
+
 
 	public BehaveTestResult() {
 	}
 
+	/**
+	 * Create a result from its summary whose features will be loaded from the given segment directory the first
+	 * time they are needed.
+	 * 
+	 * @param summary the summary of the stored result.
+	 * @param segmentDir the directory the result was written to with
+	 *            {@link BehaveResultFormat#writeSegments(BehaveTestResult, File)}.
+	 */
+	BehaveTestResult(BehaveResultSummary summary, File segmentDir) {
+		this.segmentDir = segmentDir;
+		this.segmentFeatureCount = summary.getFeatureCount();
+		this.passCount = summary.getPassCount();
+		this.failCount = summary.getFailCount();
+		this.skipCount = summary.getSkipCount();
+		this.duration = summary.getDuration();
+	}
+
+	/**
+	 * Load the feature index from the {@link #segmentDir} if it has not been loaded already.
+	 */
+	private synchronized void loadFeatures() {
+		if (segmentDir == null) {
+			return;
+		}
+		File dir = segmentDir;
+		segmentDir = null;
+		try {
+			BehaveTestResult stored = BehaveResultFormat.readSegments(dir);
+			addEstimatedSize(BehaveResultFormat.estimateHeapSize(new File(dir, BehaveResultFormat.INDEX_FILE_NAME)));
+			for (FeatureResult fr : stored.featureResults) {
+				featureResults.add(fr);
+				fr.setParent(this);
+			}
+			if (stored.tallied) {
+				// the indexes were stored with the features so there is nothing to compute.
+				setIndexes(stored.failedScenarioRefs, stored.tagMap.values());
+			}
+			else {
+				tally();
+			}
+			setOwner(owner);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Failed to load " + dir, ex);
+			// keep the summary counts so the totals are still correct.
+		}
+	}
+
+	/**
+	 * Use the indexes that were stored with the features rather than computing them with {@link #tally()}. The
+	 * counts of the result are left as they are, and the scenarios of the failures and tags are only loaded when
+	 * they are first needed.
+	 * 
+	 * @param failedRefs the failed scenarios as pairs of feature index and scenario index.
+	 * @param tags the tags, with their stored counts.
+	 */
+	synchronized void setIndexes(int[] failedRefs, Collection<TagResult> tags) {
+		featuresById = new TreeMap<>();
+		for (FeatureResult fr : featureResults) {
+			featuresById.put(fr.getSafeName(), fr);
+		}
+		failedScenarioResults = null;
+		failedScenarioRefs = failedRefs;
+		tagMap = new HashMap<>();
+		for (TagResult tr : tags) {
+			tr.setParent(this);
+			tr.setOwner(owner);
+			tagMap.put(tr.getName(), tr);
+		}
+		tallied = true;
+	}
+
+	/**
+	 * Get a scenario by its position, loading its feature if needed.
+	 * 
+	 * @param featureIndex the index of the feature in this result.
+	 * @param scenarioIndex the index of the scenario in the feature.
+	 * @return the scenario or <code>null</code> if there is no such scenario.
+	 */
+	ScenarioResult getScenario(int featureIndex, int scenarioIndex) {
+		FeatureResult fr;
+		synchronized (this) {
+			loadFeatures();
+			if (featureIndex < 0 || featureIndex >= featureResults.size()) {
+				return null;
+			}
+			fr = featureResults.get(featureIndex);
+		}
+		return fr.getScenario(scenarioIndex);
+	}
+
+	/**
+	 * Get the estimated heap used by the parts of this result that have been loaded, as used by
+	 * {@link BehaveResultCache}.
+	 * 
+	 * @return the estimated size in bytes.
+	 */
+	long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	void addEstimatedSize(long bytes) {
+		ESTIMATED_SIZE.addAndGet(this, bytes);
+	}
+
+	/**
+	 * @return <code>true</code> if the features of this result are in memory.
+	 */
+	synchronized boolean isLoaded() {
+		return segmentDir == null;
+	}
+
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
         out.writeObject(this.failedScenarioResults);
@@ -107,6 +265,35 @@ public class BehaveTestResult extends MetaTabulatedResult {
 		failCount += result.getFailCount();
 		skipCount += result.getSkipCount();
 		duration += result.getDuration();
+		invalidateTally();
+	}
+
+	/**
+	 * Give every feature that does not have a safe name one, in a single pass over the features.
+	 */
+	synchronized void assignSafeNames() {
+		loadFeatures();
+		if (featureNames == null) {
+			featureNames = new SafeNameAllocator();
+		}
+		for (FeatureResult fr : featureResults) {
+			String name = fr.getAssignedSafeName();
+			if (name != null) {
+				featureNames.reserve(name);
+			}
+		}
+		for (FeatureResult fr : featureResults) {
+			if (fr.getAssignedSafeName() == null) {
+				fr.setSafeName(featureNames.allocate(safe(fr.getFeature().getId())));
+			}
+		}
+	}
+
+	/**
+	 * Mark the tally of this result as needing to be recomputed.
+	 */
+	void invalidateTally() {
+		tallied = false;
 	}
 
 
@@ -123,22 +310,45 @@ public class BehaveTestResult extends MetaTabulatedResult {
    
 	@Override
 	public Collection<FeatureResult> getChildren() {
+		loadFeatures();
 		return featureResults;
 	}
 
 	@Exported(inline=true, visibility=9)
 	public Collection<FeatureResult> getFeatures() {
+		loadFeatures();
 		return featureResults;
 	}
 
 	@Override
-	public boolean hasChildren() {
-		return !featureResults.isEmpty();
+	public synchronized boolean hasChildren() {
+		return segmentDir != null ? segmentFeatureCount != 0 : !featureResults.isEmpty();
 	}
 
 
 	@Override
-	public Collection<ScenarioResult> getFailedTests() {
+	public synchronized Collection<ScenarioResult> getFailedTests() {
+		loadFeatures();
+		if (failedScenarioResults == null && failedScenarioRefs != null) {
+			List<ScenarioResult> failed = new ArrayList<>(failedScenarioRefs.length / 2);
+			for (int i = 0; i + 1 < failedScenarioRefs.length; i += 2) {
+				ScenarioResult sr = getScenario(failedScenarioRefs[i], failedScenarioRefs[i + 1]);
+				if (sr != null) {
+					failed.add(sr);
+				}
+			}
+			failedScenarioResults = failed;
+			failedScenarioRefs = null;
+		}
+		if (failedScenarioResults == null) {
+			failedScenarioResults = new ArrayList<>();
+			for (FeatureResult fr : featureResults) {
+				// avoid loading the scenarios of features that passed.
+				if (fr.getFailCount() != 0) {
+					failedScenarioResults.addAll(fr.getFailedTests());
+				}
+			}
+		}
 		return failedScenarioResults;
 	}
 
@@ -148,13 +358,15 @@ public class BehaveTestResult extends MetaTabulatedResult {
 		return owner;
 	}
 
-	void setOwner(AbstractBuild<?, ?> owner) {
+	synchronized void setOwner(AbstractBuild<?, ?> owner) {
 		this.owner = owner;
 		for (FeatureResult fr : featureResults) {
 			fr.setOwner(owner);
 		}
-		for (TagResult tr : tagMap.values()) {
-			tr.setOwner(owner);
+		if (tagMap != null) {
+			for (TagResult tr : tagMap.values()) {
+				tr.setOwner(owner);
+			}
 		}
 	}
 
@@ -173,10 +385,11 @@ public class BehaveTestResult extends MetaTabulatedResult {
 		}
 
 		else if (id.startsWith(getId() + "/")) {
+			loadFeatures();
 			String idToFind = id.substring(getId().length() + 1);
 			if (idToFind.startsWith("@")) {
 				// tags have no children - actually they do but they are the child of FeatureResult!
-				retVal = tagMap.get(idToFind);
+				retVal = getTagMap().get(idToFind);
 			}
 			// either a feature or a scenario
 			else {
@@ -240,19 +453,19 @@ public class BehaveTestResult extends MetaTabulatedResult {
 	
 
 	@Override
-	public void tally() {
-		if (failedScenarioResults == null) {
-			failedScenarioResults = new ArrayList<>();
-		}
-		else {
-			failedScenarioResults.clear();
-		}
-		if (tagMap == null) {
-			tagMap =  new HashMap<>();
-		}
-		else {
-			tagMap.clear();
+	public synchronized void tally() {
+		if (segmentDir != null || tallied) {
+			// the summary counts are still valid and the rest will be computed when the features are loaded.
+			return;
 		}
+		// set first so that a feature that changes whilst it is being tallied is tallied again next time.
+		tallied = true;
+		failedScenarioResults = null;
+		failedScenarioRefs = null;
+		tagMap = null;
+		childTable = null;
+		failedTable = null;
+		tagTable = null;
 		
 		passCount = 0;
 		failCount = 0;
@@ -272,8 +485,58 @@ public class BehaveTestResult extends MetaTabulatedResult {
 			failCount += fr.getFailCount();
 			skipCount += fr.getSkipCount();
 			duration += fr.getDuration();
-			failedScenarioResults.addAll(fr.getFailedTests());
 			featuresById.put(fr.getSafeName(), fr);
+		}
+	}
+
+	/**
+	 * @return the features as a table that is shown a page at a time.
+	 */
+	public synchronized ResultTable getChildTable() {
+		if (childTable == null) {
+			childTable = new ResultTable(getChildren(), false);
+		}
+		return childTable;
+	}
+
+
+	/**
+	 * @return the failed scenarios as a table that is shown a page at a time.
+	 */
+	public synchronized ResultTable getFailedTable() {
+		if (failedTable == null) {
+			failedTable = new ResultTable(getFailedTests(), true);
+		}
+		return failedTable;
+	}
+
+
+	/**
+	 * @return the tags as a table that is shown a page at a time.
+	 */
+	public synchronized ResultTable getTagTable() {
+		if (tagTable == null) {
+			tagTable = new ResultTable(getTagMap().values(), false);
+		}
+		return tagTable;
+	}
+
+
+	/**
+	 * Map of TagNames to TagResults.
+	 * @return the tagResults keyed by tag.getName().
+	 */
+	public synchronized Map<String,TagResult> getTagMap() {
+		loadFeatures();
+		if (tagMap == null) {
+			tagMap = new HashMap<>();
+			tallyTags();
+		}
+		return tagMap;
+	}
+
+	private void tallyTags() {
+		for (FeatureResult fr : featureResults) {
 			for (ScenarioResult scenarioResult : fr.getChildren()) {
 				for (Tag tag : scenarioResult.getParent().getFeature().getTags()) {
 					TagResult tr = tagMap.get(tag.getName());
@@ -283,7 +546,7 @@ public class BehaveTestResult extends MetaTabulatedResult {
 					}
 					tr.addScenarioResult(scenarioResult);
 				}
-				if (scenarioResult.getScenario().getTags().isEmpty()) {
+				if (scenarioResult.getTagNames().isEmpty()) {
 					TagResult tr = tagMap.get(UNTAGGED_TEST_TAG);
 					if (tr == null) {
 						tr = new TagResult(UNTAGGED_TEST_TAG);
@@ -292,11 +555,11 @@ public class BehaveTestResult extends MetaTabulatedResult {
 					tr.addScenarioResult(scenarioResult);
 				}
 				else {
-					for (Tag tag : scenarioResult.getScenario().getTags()) {
-						TagResult tr = tagMap.get(tag.getName());
+					for (String tagName : scenarioResult.getTagNames()) {
+						TagResult tr = tagMap.get(tagName);
 						if (tr == null) {
-							tr = new TagResult(tag.getName());
-							tagMap.put(tag.getName(), tr);
+							tr = new TagResult(tagName);
+							tagMap.put(tagName, tr);
 						}
 						tr.addScenarioResult(scenarioResult);
 					}
@@ -307,17 +570,10 @@ public class BehaveTestResult extends MetaTabulatedResult {
 		for (TagResult tr : tagMap.values()) {
 			tr.setParent(this);
 			tr.tally();
+			tr.setOwner(owner);
 		}
 	}
 
-	/**
-	 * Map of TagNames to TagResults.
-	 * @return the tagResults keyed by tag.getName().
-	 */
-	public Map<String,TagResult> getTagMap() {
-		return tagMap;
-	}
-
 	@Override
 	public Object getDynamic(String token, StaplerRequest req, StaplerResponse rsp) {
 		// TODO Tag support!
@@ -325,11 +581,12 @@ public class BehaveTestResult extends MetaTabulatedResult {
 			return this;
 		}
 		if (token.startsWith("@")) {
-			TagResult result = tagMap.get(token);
+			TagResult result = getTagMap().get(token);
 			if (result != null) {
 				return result;
 			}
 		}
+		loadFeatures();
 		FeatureResult result = featuresById.get(token);
 		if (result != null) {
 			return result;
@@ -23,10 +23,12 @@
  */
 package org.jenkinsci.plugins.behave.jsontestsupport;
 
+import hudson.Util;
 import hudson.XmlFile;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
+import hudson.model.Run;
 import hudson.tasks.junit.TestResult;
 import hudson.tasks.test.AbstractTestResultAction;
 import hudson.util.HeapSpaceStringConverter;
@@ -34,7 +36,10 @@ import hudson.util.XStream2;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,8 +54,8 @@ import java.util.concurrent.locks.ReentrantLock;
  * {@link Action} that displays the Behave test result.
  *
  * <p>
- * The actual test reports are isolated by {@link WeakReference}
- * so that it doesn't eat up too much memory.
+ * The actual test reports are held by the {@link BehaveResultCache}
+ * so that they don't eat up too much memory.
  *
  * @author James Nord
  * @author Kohsuke Kawaguchi (original junit support)
@@ -61,7 +66,20 @@ public final class BehaveTestResultAction extends AbstractTestResultAction<Behav
 
    private static final XStream XSTREAM = new XStream2();
 
-   private transient WeakReference<BehaveTestResult> result;
+   /** The directory in the build directory that the segmented result is stored in. */
+   static final String SEGMENT_DIR_NAME = "behave/result";
+
+   /** The name of the file in the build directory that the summary of the result is stored in. */
+   static final String SUMMARY_FILE_NAME = "behave/summary.bin";
+
+   /** The summary is tiny so it is kept for as long as the build is. */
+   private transient BehaveResultSummary summary;
+
+   /** The result that is being written, which can not be evicted until it can be loaded again. */
+   private transient volatile BehaveTestResult pendingResult;
+
+   /** Completes once the result has been written. */
+   private transient volatile Future<?> pendingWrite;
    
    private final Lock resultLock = new ReentrantLock();
    
@@ -84,45 +102,192 @@ public final class BehaveTestResultAction extends AbstractTestResultAction<Behav
 		super(owner);
 		setResult(result, listener);
 	}
+
+   /**
+    * Create an action for a result that is already stored in the build directory, as an action that is loaded
+    * with its build is.
+    * @param owner the build that the result is stored in.
+    */
+   BehaveTestResultAction(AbstractBuild owner) {
+      super(owner);
+   }
 	
    /**
     * Overwrites the {@link BehaveTestResult} by a new data set.
+    * The result is written by the {@link BehaveResultWriter} in the background and is held in memory until it has
+    * been written.
      * @param result the behave test result
      * @param listener the build listener
     */
-   public void setResult(BehaveTestResult result, BuildListener listener) {
+   public void setResult(final BehaveTestResult result, BuildListener listener) {
        
         resultLock.lock();
         try {
+            // never have two writes of the same build racing each other.
+            awaitWrite();
             totalCount = result.getTotalCount();
             failCount = result.getFailCount();
             skipCount = result.getSkipCount();
-            // persist the data
-            try {
-                getDataFile().write(result);
-            } catch (IOException ex) {
-                ex.printStackTrace(listener.fatalError("Failed to save the Behave test result."));
-                LOGGER.log(Level.WARNING, "Failed to save the Behave test result.", ex);
-            }
-            this.result = new WeakReference<>(result);
+            final BehaveResultSummary s = BehaveResultSummary.of(result);
+            summary = s;
+            pendingResult = result;
+            BehaveResultCache.getInstance().put(getCacheKey(), result);
+            pendingWrite = BehaveResultWriter.submit(new Runnable() {
+                @Override
+                public void run() {
+                    save(result, s);
+                }
+            });
         } finally {
                resultLock.unlock();
        }
    }
+
+   /**
+    * Persist the result and its summary. Each is written to a temporary location and renamed in to place once it
+    * is on the disk. The previous result is renamed aside rather than deleted until the new one is in place, so
+    * that there is always a complete result on the disk. If the result can not be saved it is kept in memory.
+    * The build may have finished and closed its log by the time the result is written, so failures are only
+    * logged.
+    */
+   private void save(BehaveTestResult result, BehaveResultSummary s) {
+       try {
+           File dir = getSegmentDir();
+           File tmp = new File(dir.getParentFile(), dir.getName() + ".tmp");
+           File old = getOldSegmentDir();
+           if (tmp.exists()) {
+               Util.deleteRecursive(tmp);
+           }
+           BehaveResultFormat.writeSegments(result, tmp);
+           if (old.exists()) {
+               Util.deleteRecursive(old);
+           }
+           if (dir.exists()) {
+               Files.move(dir.toPath(), old.toPath(), StandardCopyOption.ATOMIC_MOVE);
+           }
+           Files.move(tmp.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+           saveSummary(s);
+           try {
+               Util.deleteRecursive(old);
+           } catch (IOException ex) {
+               // it is removed by the next save.
+               LOGGER.log(Level.FINE, "Failed to delete " + old, ex);
+           }
+           // the parsed result holds all of its gherkin details, the stored one only loads what is looked at.
+           BehaveResultCache.getInstance().invalidate(getCacheKey());
+           // the result can now be loaded again should the cache evict it.
+           pendingResult = null;
+       } catch (IOException ex) {
+           LOGGER.log(Level.WARNING, "Failed to save the Behave test result of " + owner, ex);
+       }
+   }
+
+   /**
+    * Put the previous result back if a save stopped after renaming it aside and before renaming the new result in
+    * to place.
+    */
+   private void recoverSegmentDir() {
+       File dir = getSegmentDir();
+       File old = getOldSegmentDir();
+       if (dir.exists() || !old.exists()) {
+           return;
+       }
+       try {
+           Files.move(old.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+       } catch (IOException ex) {
+           LOGGER.log(Level.WARNING, "Failed to restore " + old, ex);
+       }
+   }
+
+   /**
+    * Wait for the result of this build to be written, if it is being written.
+    */
+   private void awaitWrite() {
+       Future<?> write = pendingWrite;
+       if (write == null) {
+           return;
+       }
+       try {
+           write.get();
+       } catch (InterruptedException ex) {
+           Thread.currentThread().interrupt();
+       } catch (ExecutionException ex) {
+           LOGGER.log(Level.WARNING, "Failed to save the Behave test result of " + owner, ex.getCause());
+       }
+   }
 	
+   private void saveSummary(BehaveResultSummary s) throws IOException {
+      File file = getSummaryFile();
+      File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+      BehaveResultFormat.writeSummary(s, tmp);
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private File getSummaryFile() {
+      return new File(owner.getRootDir(), SUMMARY_FILE_NAME);
+   }
+
+   private String getCacheKey() {
+      return getCacheKey(owner);
+   }
+
+   /**
+    * @param build the build.
+    * @return the key of the result of the build in the {@link BehaveResultCache}.
+    */
+   static String getCacheKey(Run<?, ?> build) {
+      return build.getRootDir().getPath();
+   }
+
+   private File getSegmentDir() {
+      return new File(owner.getRootDir(), SEGMENT_DIR_NAME);
+   }
+
+   /**
+    * The directory that the previous result is renamed to whilst a new result is renamed in to place.
+    */
+   private File getOldSegmentDir() {
+      return new File(owner.getRootDir(), SEGMENT_DIR_NAME + ".old");
+   }
+
+   /**
+    * The XStream file that results were stored in by older versions of the plugin. Only ever read.
+    */
    private XmlFile getDataFile() {
       return new XmlFile(XSTREAM,new File(owner.getRootDir(), "behaveResult.xml"));
   }
 
    /**
     * Loads a {@link TestResult} from disk.
+    * Only the feature index of a segmented result is read, the scenarios of a feature are loaded when first needed.
     */
    private BehaveTestResult load() {
+       // the files are only complete once any write has finished.
+       awaitWrite();
+       recoverSegmentDir();
    	BehaveTestResult r;
+       File segmentDir = getSegmentDir();
+       Object source = segmentDir;
        try {
-           r = (BehaveTestResult)getDataFile().read();
+           BehaveResultSummary s = getStoredSummary();
+           File index = new File(segmentDir, BehaveResultFormat.INDEX_FILE_NAME);
+           if (s != null && index.exists()) {
+               // nothing but the summary is read until the features are needed.
+               r = new BehaveTestResult(s, segmentDir);
+               r.addEstimatedSize(BehaveResultFormat.estimateHeapSize(getSummaryFile()));
+           }
+           else if (index.exists()) {
+               r = BehaveResultFormat.readSegments(segmentDir);
+               r.addEstimatedSize(BehaveResultFormat.estimateHeapSize(index));
+           }
+           else {
+               source = getDataFile();
+               r = (BehaveTestResult)getDataFile().read();
+               // the XML is about as verbose as the objects it describes.
+               r.addEstimatedSize(getDataFile().getFile().length());
+           }
        } catch (IOException e) {
-           LOGGER.log(Level.WARNING, "Failed to load " + getDataFile(), e);
+           LOGGER.log(Level.WARNING, "Failed to load " + source, e);
            r = new BehaveTestResult(); // return a dummy
        }
        r.tally();
@@ -130,21 +295,75 @@ public final class BehaveTestResultAction extends AbstractTestResultAction<Behav
        return r;
    }
    
+   /**
+    * Get the summary of the result, which is all that is needed by the build history and the trend graphs.
+    * The summary of a result stored by an older version of the plugin is computed from the result the first time
+    * it is asked for and saved alongside it.
+    * @return the summary of the result.
+    */
+   @Exported(visibility = 2)
+   public BehaveResultSummary getSummary() {
+       resultLock.lock();
+       try {
+           if (summary == null) {
+               summary = getStoredSummary();
+           }
+           if (summary == null) {
+               summary = BehaveResultSummary.of(getResult());
+               try {
+                   saveSummary(summary);
+               } catch (IOException ex) {
+                   LOGGER.log(Level.WARNING, "Failed to save the Behave test result summary.", ex);
+               }
+           }
+           return summary;
+       } finally {
+           resultLock.unlock();
+       }
+   }
+
+   /**
+    * @return the summary that is stored on disk, or <code>null</code> if there is none.
+    */
+   private BehaveResultSummary getStoredSummary() {
+       if (summary != null) {
+           return summary;
+       }
+       File file = getSummaryFile();
+       if (file.exists()) {
+           try {
+               summary = BehaveResultFormat.readSummary(file);
+           } catch (IOException ex) {
+               LOGGER.log(Level.WARNING, "Failed to load " + file, ex);
+           }
+       }
+       return summary;
+   }
+
 	@Override
    @Exported(visibility = 2)
    public int getFailCount() {
+		if (failCount == -1) {
+			failCount = getSummary().getFailCount();
+		}
 		return failCount;
 	}
 
 	@Override
    @Exported(visibility = 2)
    public int getTotalCount() {
+		if (totalCount == -1) {
+			totalCount = getSummary().getTotalCount();
+		}
 		return totalCount;
 	}
 
 	@Override
 	@Exported(visibility = 2)
    public int getSkipCount() {
+		if (skipCount == -1) {
+			skipCount = getSummary().getSkipCount();
+		}
 		return skipCount;
 	}
 	
@@ -155,17 +374,16 @@ public final class BehaveTestResultAction extends AbstractTestResultAction<Behav
         resultLock.lock();
         BehaveTestResult r;
         try {
-           if (result == null) {
-               r = load();
-               result = new WeakReference<>(r);
-           }
-           else {
-               r = result.get();
+           BehaveResultCache cache = BehaveResultCache.getInstance();
+           String key = getCacheKey();
+           r = pendingResult;
+           if (r == null) {
+               r = cache.get(key);
            }
-           
            if (r == null) {
+               long start = System.nanoTime();
                r = load();
-               result = new WeakReference<>(r);
+               cache.loaded(key, r, System.nanoTime() - start);
            }
            
            if (totalCount == -1) {
@@ -28,6 +28,7 @@ import hudson.AbortException;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.matrix.MatrixAggregatable;
 import hudson.matrix.MatrixAggregator;
 import hudson.matrix.MatrixBuild;
@@ -38,25 +39,38 @@ import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 import hudson.tasks.test.TestResultAggregator;
-import hudson.tasks.test.TestResultProjectAction;
 import hudson.util.FormValidation;
 import jenkins.security.MasterToSlaveCallable;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import net.sf.json.JSONObject;
 
 import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
@@ -79,6 +93,12 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 
 	private boolean ignoreBadSteps;
 
+	/** Stream the report files rather than loading each one in to memory. */
+	private boolean streaming;
+
+	/** The number of report files that may be parsed concurrently on the node. */
+	private int parallelism = 1;
+
 	@DataBoundConstructor
 	public BehaveTestResultArchiver(String testResults) {
 		this.testResults = testResults;
@@ -98,6 +118,25 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 		return ignoreBadSteps;
 	}
 
+	@DataBoundSetter
+	public void setStreaming(boolean streaming){
+		this.streaming = streaming;
+	}
+
+	public boolean getStreaming(){
+		return streaming;
+	}
+
+	@DataBoundSetter
+	public void setParallelism(int parallelism){
+		this.parallelism = parallelism;
+	}
+
+	public int getParallelism(){
+		// older configurations will not have this set.
+		return parallelism < 1 ? 1 : parallelism;
+	}
+
 	@Override
 	public boolean
 	perform(AbstractBuild build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
@@ -108,46 +147,24 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 		final String _testResults = build.getEnvironment(listener).expand(this.testResults);
 
 		try {
-			BehaveJSONParser parser = new BehaveJSONParser(ignoreBadSteps);
+			BehaveJSONParser parser = new BehaveJSONParser(ignoreBadSteps, streaming);
+			parser.setParallelism(getParallelism());
 
 			BehaveTestResult result = parser.parse(_testResults, build, launcher, listener);
 
-			// TODO - look at all of the Scenarios and see if there are any embedded items contained with in them
-			String remoteTempDir = launcher.getChannel().call(new TmpDirCallable());
-
-			// if so we need to copy them to the master.
-			for (FeatureResult f : result.getFeatures()) {
-				for (ScenarioResult s : f.getScenarioResults()) {
-					for (EmbeddedItem item : s.getEmbeddedItems()) {
-						// this is the wrong place to do the copying...
-						// XXX Need to do something with MasterToSlaveCallable to makesure we are safe from evil
-						// injection
-						FilePath srcFilePath = new FilePath(launcher.getChannel(), remoteTempDir + '/' + item.getFilename());
-						// XXX when we support the workflow we will need to make sure that these files do not clash....
-						File destRoot = new File(build.getRootDir(), "/behave/embed/" + f.getSafeName() + '/' + s
-								.getSafeName() + '/');
-						if (!destRoot.mkdirs())
-                            LOGGER.log(Level.WARNING, "Could not make destRoot");
-						File destFile = new File(destRoot, item.getFilename());
-						if (!destFile.getAbsolutePath().startsWith(destRoot.getAbsolutePath())) {
-							// someone is trying to trick us into writing abitrary files...
-							throw new IOException("Exploit attempt detected - Build attempted to write to " +
-									destFile.getAbsolutePath());
-						}
-						FilePath destFilePath = new FilePath(destFile);
-						srcFilePath.copyTo(destFilePath);
-						srcFilePath.delete();
-					}
-				}
-			}
-			
-			action = new BehaveTestResultAction(build, result, listener);
+			// if there are any embedded items in the scenarios we need to copy them to the master.
+			archiveEmbeddings(result, build, launcher.getChannel(), listener);
 
 			if (result.getPassCount() == 0 && result.getFailCount() == 0 && result.getSkipCount() == 0)
 				throw new AbortException("No behave scenarios appear to have been run.");
 
 			CHECKPOINT.block();
 
+			// the previous build has been recorded, so the failures of this one can be followed on from it.
+			recordHistory(result, build, listener);
+
+			action = new BehaveTestResultAction(build, result, listener);
+
 		}
 		catch (AbortException e) {
 			if (build.getResult() == Result.FAILURE) {
@@ -168,9 +185,9 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 		build.getActions().add(action);
 		CHECKPOINT.report();
 
-		if (action.getResult().getTotalCount() == action.getResult().getFailCount()){
+		if (action.getTotalCount() == action.getFailCount()){
 			build.setResult(Result.FAILURE);
-		} else if (action.getResult().getFailCount() > 0) {
+		} else if (action.getFailCount() > 0) {
 			build.setResult(Result.UNSTABLE);
 		}
 
@@ -195,7 +212,7 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 
 	@Override
 	public Collection<Action> getProjectActions(AbstractProject<?, ?> project) {
-		return Collections.<Action> singleton(new TestResultProjectAction(project));
+		return Collections.<Action> singleton(new BehaveTestResultProjectAction(project));
 	}
 
 
@@ -209,6 +226,13 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 	 */
 	private static final CheckPoint CHECKPOINT = new CheckPoint("Behave result archiving");
 
+	/**
+	 * Copy the embedded files to the master one at a time as was done before they were transferred in a single
+	 * archive.
+	 */
+	private static final boolean PER_FILE_EMBEDDING_TRANSFER =
+	      Boolean.getBoolean(BehaveTestResultArchiver.class.getName() + ".perFileEmbeddingTransfer");
+
 	private static final long serialVersionUID = 1L;
 
 
@@ -218,6 +242,153 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 	}
 
 
+	/**
+	 * Record the outcome of the scenarios in the {@link ScenarioHistory} of the job, before the result is saved
+	 * so that the build each failure started in is saved with it.
+	 */
+	private static void recordHistory(BehaveTestResult result, AbstractBuild<?, ?> build, BuildListener listener) {
+		ScenarioHistory history = ScenarioHistory.of(build.getParent());
+		try {
+			history.record(build.getNumber(), result, history.isEmpty() && ScenarioHistory.hasEarlierResults(build));
+		}
+		catch (IOException ex) {
+			// the history is only an index of the results, so the build does not fail without it.
+			ex.printStackTrace(listener.error("Failed to record the history of the behave scenarios"));
+		}
+	}
+
+
+	/**
+	 * Copy the embedded files of the result from the node in to the {@link EmbedStore} of the job. Only the first
+	 * file of each content that is not already stored is copied, the rest are deleted from the node.
+	 */
+	private static void archiveEmbeddings(BehaveTestResult result, AbstractBuild<?, ?> build, VirtualChannel channel,
+	                                      BuildListener listener) throws IOException, InterruptedException {
+		// the name of the first file on the node with each digest.
+		Map<String, String> embeddings = new LinkedHashMap<>();
+		List<String> drops = new ArrayList<>();
+		for (FeatureResult f : result.getFeatures()) {
+			for (ScenarioResult s : f.getScenarioResults()) {
+				for (EmbeddedItem item : s.getEmbeddedItems()) {
+					if (!EmbedStore.isDigest(item.getDigest())) {
+						// someone is trying to trick us into writing abitrary files...
+						throw new IOException("Exploit attempt detected - Build reported the digest " +
+								item.getDigest() + " for " + item.getFilename());
+					}
+					if (embeddings.containsKey(item.getDigest())) {
+						drops.add(item.getFilename());
+					}
+					else {
+						embeddings.put(item.getDigest(), item.getFilename());
+					}
+				}
+			}
+		}
+		if (embeddings.isEmpty()) {
+			return;
+		}
+		EmbedStore store = EmbedStore.of(build.getProject());
+		// reference the content before looking for it so that it can not be removed before the build is saved.
+		store.addReferences(build.getRootDir(), embeddings.keySet());
+		Set<String> missing = store.missing(embeddings.keySet());
+		Map<String, String> copies = new LinkedHashMap<>();
+		for (Map.Entry<String, String> embedding : embeddings.entrySet()) {
+			if (missing.contains(embedding.getKey())) {
+				copies.put(EmbedStore.getPath(embedding.getKey()), embedding.getValue());
+			}
+			else {
+				drops.add(embedding.getValue());
+			}
+		}
+		File incoming = store.createIncomingDir();
+		try {
+			if (PER_FILE_EMBEDDING_TRANSFER) {
+				copyEmbeddings(channel, copies, drops, incoming);
+			}
+			else {
+				transferEmbeddings(channel, copies, drops, incoming);
+			}
+		}
+		catch (IOException | InterruptedException ex) {
+			Util.deleteRecursive(incoming);
+			throw ex;
+		}
+		store.add(incoming);
+		listener.getLogger().println("[Behave Tests] Archived " + (copies.size() + drops.size()) +
+		                             " embedded files, " + copies.size() + " with new content.");
+	}
+
+
+	/**
+	 * Copy the embedded files from the node to the master in a single archive, rather than with a round trip
+	 * for each file. The archive is built by the node, so only the files that the master asked for are taken from
+	 * it and each is written to the name the master chose for it, rather than extracting whatever it holds.
+	 * 
+	 * @param channel the channel to the node that the reports were parsed on.
+	 * @param copies the path of each embedded file relative to <code>dest</code>, mapped to the name of the file
+	 *            in the temporary directory of the node.
+	 * @param drops the names of the files in the temporary directory of the node that are not needed.
+	 * @param dest the directory to copy the embedded files in to.
+	 */
+	private static void transferEmbeddings(VirtualChannel channel, Map<String, String> copies, List<String> drops,
+	                                       File dest) throws IOException, InterruptedException {
+		FilePath staging = new FilePath(channel, channel.call(new StageEmbeddingsCallable(copies, drops)));
+		File archive = File.createTempFile("embeddings", ".tar", dest);
+		try {
+			try (OutputStream os = new FileOutputStream(archive)) {
+				staging.tar(os, "**/*");
+			}
+			Set<String> expected = new HashSet<>(copies.keySet());
+			try (TarInputStream tar = new TarInputStream(new FileInputStream(archive))) {
+				TarEntry entry;
+				while ((entry = tar.getNextEntry()) != null) {
+					// removing the name also ignores a second entry with the same name.
+					if (entry.isDirectory() || !expected.remove(entry.getName())) {
+						LOGGER.log(Level.FINE, "Ignoring unexpected embedding {0}", entry.getName());
+						continue;
+					}
+					File destFile = new File(dest, entry.getName());
+					File destDir = destFile.getParentFile();
+					if (!destDir.isDirectory() && !destDir.mkdirs()) {
+						throw new IOException("Could not create " + destDir);
+					}
+					Files.copy(tar, destFile.toPath());
+				}
+			}
+		}
+		finally {
+			if (!archive.delete()) {
+				LOGGER.log(Level.FINE, "Could not delete {0}", archive);
+			}
+			staging.deleteRecursive();
+		}
+	}
+
+
+	/**
+	 * Copy the embedded files from the node to the master one at a time.
+	 * 
+	 * @see #transferEmbeddings(VirtualChannel, Map, List, File)
+	 */
+	private static void copyEmbeddings(VirtualChannel channel, Map<String, String> copies, List<String> drops,
+	                                   File dest) throws IOException, InterruptedException {
+		String remoteTempDir = channel.call(new TmpDirCallable());
+		for (Map.Entry<String, String> embedding : copies.entrySet()) {
+			// XXX Need to do something with MasterToSlaveCallable to makesure we are safe from evil
+			// injection
+			FilePath srcFilePath = new FilePath(channel, remoteTempDir + '/' + embedding.getValue());
+			File destFile = new File(dest, embedding.getKey());
+			if (!destFile.getParentFile().mkdirs())
+				LOGGER.log(Level.FINE, "Could not make {0}", destFile.getParentFile());
+			srcFilePath.copyTo(new FilePath(destFile));
+			srcFilePath.delete();
+		}
+		for (String drop : drops) {
+			new FilePath(channel, remoteTempDir + '/' + drop).delete();
+		}
+	}
+
+
 	/**
 	 * {@link Callable} that gets the temporary directory from the node. 
 	 */
@@ -233,6 +404,48 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 
 
 
+	/**
+	 * {@link Callable} that moves the embedded files in the temporary directory of the node in to a new staging
+	 * directory, laid out as they will be stored on the master, deletes those that are not needed and returns the
+	 * path of the staging directory.
+	 */
+	private final static class StageEmbeddingsCallable extends MasterToSlaveCallable<String, IOException> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final LinkedHashMap<String, String> copies;
+
+		private final ArrayList<String> drops;
+
+		StageEmbeddingsCallable(Map<String, String> copies, List<String> drops) {
+			this.copies = new LinkedHashMap<>(copies);
+			this.drops = new ArrayList<>(drops);
+		}
+
+		@Override
+		public String call() throws IOException {
+			File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+			File staging = Files.createTempDirectory(tmpDir.toPath(), "behave_embed").toFile();
+			for (Map.Entry<String, String> embedding : copies.entrySet()) {
+				File destFile = new File(staging, embedding.getKey());
+				File destDir = destFile.getParentFile();
+				if (!destDir.isDirectory() && !destDir.mkdirs()) {
+					throw new IOException("Could not create " + destDir);
+				}
+				// the staging directory is next to the embedded files so this is normally just a rename.
+				Files.move(new File(tmpDir, embedding.getValue()).toPath(), destFile.toPath(),
+				           StandardCopyOption.REPLACE_EXISTING);
+			}
+			for (String drop : drops) {
+				// the content is already on the master.
+				Files.deleteIfExists(new File(tmpDir, drop).toPath());
+			}
+			return staging.getAbsolutePath();
+		}
+	}
+
+
+
 	@Extension
 	public static class DescriptorImpl extends BuildStepDescriptor<Publisher> {
 
@@ -247,7 +460,10 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 			String testResults = formData.getString("testResults");
 			boolean ignoreBadSteps = formData.getBoolean("ignoreBadSteps");
 			LOGGER.fine("ignoreBadSteps = "+ ignoreBadSteps);
-			return new BehaveTestResultArchiver(testResults, ignoreBadSteps);
+			BehaveTestResultArchiver archiver = new BehaveTestResultArchiver(testResults, ignoreBadSteps);
+			archiver.setStreaming(formData.optBoolean("streaming"));
+			archiver.setParallelism(formData.optInt("parallelism", 1));
+			return archiver;
 		}
 
 
@@ -264,6 +480,16 @@ public final class BehaveTestResultArchiver extends Recorder implements MatrixAg
 		}
 
 
+		/**
+		 * Performs on-the-fly validation of the number of parsing threads.
+                 * @param value the query
+                 * @return a formValidation
+		 */
+		public FormValidation doCheckParallelism(@QueryParameter String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+
+
                 @Override
 		public boolean isApplicable(Class<? extends AbstractProject> jobType) {
 			return true;
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.AbstractProject;
+import hudson.tasks.test.TestResultProjectAction;
+
+/**
+ * The test result trend of a project, with the reports that are made from the {@link ScenarioHistory} of the
+ * project.
+ * 
+ * @author James Nord
+ */
+public class BehaveTestResultProjectAction extends TestResultProjectAction {
+
+	public BehaveTestResultProjectAction(AbstractProject<?, ?> project) {
+		super(project);
+	}
+
+
+	/**
+	 * @return the report of the flaky scenarios of the project.
+	 */
+	public FlakyReport getFlaky() {
+		return new FlakyReport(project);
+	}
+
+
+	/**
+	 * @return the report of the durations of the scenarios of the project.
+	 */
+	public DurationReport getDurations() {
+		return new DurationReport(project);
+	}
+}
@@ -25,11 +25,16 @@ package org.jenkinsci.plugins.behave.jsontestsupport;
 
 import behave.gherkin.formatter.model.Result;
 import behave.gherkin.formatter.model.TagStatement;
+import hudson.Util;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -92,7 +97,7 @@ public class BehaveUtils {
 	 * @throws IOException if we couldn't create a temporary file
 	 */
 	public static File createEmbedFile(byte[] data) throws IOException {
-		File f = File.createTempFile("cuke_", ".embed");
+		File f = createEmbedFile();
 		{
 			try (FileOutputStream fos = new FileOutputStream(f)) {
 				fos.write(data);
@@ -101,4 +106,42 @@ public class BehaveUtils {
 		}
 		return f;
 	}
+
+
+	/**
+	 * Create an empty temporary file on the slave to store embedded content that is written as it is read.
+	 * 
+	 * @return a file
+	 * @throws IOException if we couldn't create a temporary file
+	 */
+	static File createEmbedFile() throws IOException {
+		return File.createTempFile("cuke_", ".embed");
+	}
+
+
+	/**
+	 * Compute the SHA-256 digest of an embedded file on the slave, used to store identical content only once.
+	 * 
+	 * @param f the file
+	 * @return the digest as lower case hex.
+	 * @throws IOException if the file could not be read
+	 */
+	static String digest(File f) throws IOException {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			// every JVM is required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream is = new FileInputStream(f)) {
+			int read;
+			while ((read = is.read(buf)) != -1) {
+				md.update(buf, 0, read);
+			}
+		}
+		return Util.toHexString(md.digest());
+	}
 }
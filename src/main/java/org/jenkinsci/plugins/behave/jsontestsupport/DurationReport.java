@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.servlet.ServletException;
+
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.export.Flavor;
+
+/**
+ * The durations of the scenarios and tags of a project over the last {@link ScenarioHistory#DURATIONS} builds up to
+ * the last build that each ran in, served at <code>durations</code> under the project action. The report lists the
+ * scenarios that have slowed down the most and the duration of each tag, and the durations of a single scenario or
+ * tag are served as JSON at <code>durations/series?scenario=feature/scenario</code> or
+ * <code>durations/series?tag=name</code>.
+ * 
+ * @author James Nord
+ */
+@ExportedBean
+public final class DurationReport {
+
+	/** The number of scenarios that are listed as having slowed down. */
+	private static final int MAX_REGRESSIONS = 100;
+
+	private final AbstractProject<?, ?> project;
+
+	private List<DurationTrend> regressions;
+	private List<DurationTrend> tags;
+
+
+	DurationReport(AbstractProject<?, ?> project) {
+		this.project = project;
+	}
+
+
+	public AbstractProject<?, ?> getProject() {
+		return project;
+	}
+
+
+	public String getDisplayName() {
+		return "Behave Scenario Durations";
+	}
+
+
+	/**
+	 * @return the number of builds, up to the last build a scenario ran in, that the durations are kept for.
+	 */
+	@Exported
+	public int getWindow() {
+		return ScenarioHistory.DURATIONS;
+	}
+
+
+	/**
+	 * @return the scenarios whose recent runs are slower than their older runs, the greatest slowdown first.
+	 */
+	@Exported(inline = true)
+	public synchronized List<DurationTrend> getRegressions() {
+		if (regressions == null) {
+			List<DurationTrend> slower = new ArrayList<>();
+			for (DurationTrend trend : ScenarioHistory.of(project).getTrends(false)) {
+				if (trend.getSlowdown() > 0.0f) {
+					slower.add(trend);
+				}
+			}
+			Collections.sort(slower, new Comparator<DurationTrend>() {
+				@Override
+				public int compare(DurationTrend o1, DurationTrend o2) {
+					int c = Float.compare(o2.getSlowdown(), o1.getSlowdown());
+					return c != 0 ? c : o1.getId().compareTo(o2.getId());
+				}
+			});
+			regressions = slower.size() > MAX_REGRESSIONS ? slower.subList(0, MAX_REGRESSIONS) : slower;
+		}
+		return regressions;
+	}
+
+
+	/**
+	 * @return the durations of every tag, by name.
+	 */
+	@Exported(inline = true)
+	public synchronized List<DurationTrend> getTags() {
+		if (tags == null) {
+			tags = ScenarioHistory.of(project).getTrends(true);
+			Collections.sort(tags, new Comparator<DurationTrend>() {
+				@Override
+				public int compare(DurationTrend o1, DurationTrend o2) {
+					return o1.getId().compareTo(o2.getId());
+				}
+			});
+		}
+		return tags;
+	}
+
+
+	/**
+	 * @param seconds a duration.
+	 * @return the duration for display.
+	 */
+	public String format(float seconds) {
+		String span = Util.getTimeSpanString(Math.round(Math.abs(seconds) * 1000.0));
+		return seconds < 0.0f ? '-' + span : span;
+	}
+
+
+	/**
+	 * @param trend the trend of a scenario or tag.
+	 * @param tag <code>true</code> if the trend is of a tag.
+	 * @return the url of the durations of the scenario or tag relative to this report.
+	 */
+	public String getSeriesUrl(DurationTrend trend, boolean tag) {
+		return "series?" + (tag ? "tag=" : "scenario=") + Util.rawEncode(trend.getId());
+	}
+
+
+	/**
+	 * Serve the durations of a scenario or a tag.
+	 * 
+	 * @param scenario the id of the scenario relative to the {@link BehaveTestResult}.
+	 * @param tag the name of the tag, used if the scenario is not given.
+	 */
+	public void doSeries(StaplerRequest req, StaplerResponse rsp, @QueryParameter String scenario,
+	                     @QueryParameter String tag) throws IOException, ServletException {
+		ScenarioHistory history = ScenarioHistory.of(project);
+		DurationTrend trend = null;
+		if (scenario != null) {
+			trend = history.getScenarioTrend(scenario);
+		}
+		else if (tag != null) {
+			trend = history.getTagTrend(tag);
+		}
+		if (trend == null) {
+			rsp.sendError(StaplerResponse.SC_NOT_FOUND);
+			return;
+		}
+		rsp.serveExposedBean(req, trend, Flavor.JSON);
+	}
+
+
+	public Api getApi() {
+		return new Api(this);
+	}
+}
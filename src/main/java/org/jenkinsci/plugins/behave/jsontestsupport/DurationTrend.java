@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.Arrays;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The durations of the recent passing runs of a scenario, or of the scenarios with a tag, from the
+ * {@link ScenarioHistory} of a job.
+ * <p>
+ * The runs are split in to the older and the newer half, and the difference between the median durations of the
+ * halves is the slowdown of the scenario, so that a single slow run does not count as a regression.
+ * 
+ * @author James Nord
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class DurationTrend {
+
+	/** The number of runs needed in each half before a slowdown is measured. */
+	private static final int MIN_HALF_RUNS = 2;
+
+	private final String id;
+	private final int[] builds;
+	private final float[] durations;
+
+	private final float p50;
+	private final float p95;
+	private final float baseline;
+	private final float recent;
+
+
+	DurationTrend(String id, int[] builds, float[] durations) {
+		this.id = id;
+		this.builds = builds;
+		this.durations = durations;
+		int half = durations.length / 2;
+		float[] sorted = durations.clone();
+		Arrays.sort(sorted);
+		p50 = percentile(sorted, 50);
+		p95 = percentile(sorted, 95);
+		if (half >= MIN_HALF_RUNS) {
+			float[] older = Arrays.copyOfRange(durations, 0, durations.length - half);
+			float[] newer = Arrays.copyOfRange(durations, durations.length - half, durations.length);
+			Arrays.sort(older);
+			Arrays.sort(newer);
+			baseline = percentile(older, 50);
+			recent = percentile(newer, 50);
+		}
+		else {
+			baseline = p50;
+			recent = p50;
+		}
+	}
+
+
+	/**
+	 * @param sorted the values in ascending order.
+	 * @param p the percentile.
+	 * @return the value at the percentile by the nearest rank, or <code>0</code> if there are no values.
+	 */
+	static float percentile(float[] sorted, int p) {
+		if (sorted.length == 0) {
+			return 0.0f;
+		}
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+
+	/**
+	 * @return the id of the scenario relative to the {@link BehaveTestResult}, or the name of the tag.
+	 */
+	@Exported
+	public String getId() {
+		return id;
+	}
+
+
+	/**
+	 * @return the number of each build that the scenario passed in, oldest first.
+	 */
+	@Exported
+	public int[] getBuilds() {
+		return builds.clone();
+	}
+
+
+	/**
+	 * @return the duration in seconds of each build in {@link #getBuilds()}.
+	 */
+	@Exported
+	public float[] getDurations() {
+		return durations.clone();
+	}
+
+
+	@Exported
+	public int getRuns() {
+		return builds.length;
+	}
+
+
+	@Exported
+	public float getP50() {
+		return p50;
+	}
+
+
+	@Exported
+	public float getP95() {
+		return p95;
+	}
+
+
+	/**
+	 * @return the median duration of the older half of the runs.
+	 */
+	@Exported
+	public float getBaseline() {
+		return baseline;
+	}
+
+
+	/**
+	 * @return the median duration of the newer half of the runs.
+	 */
+	@Exported
+	public float getRecent() {
+		return recent;
+	}
+
+
+	/**
+	 * @return how many seconds slower the newer half of the runs is than the older, or <code>0</code> if there are
+	 *         too few runs to tell.
+	 */
+	@Exported
+	public float getSlowdown() {
+		return recent - baseline;
+	}
+}
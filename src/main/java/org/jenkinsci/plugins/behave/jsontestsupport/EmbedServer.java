@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Serves an embedded file of a scenario.
+ * <p>
+ * Files stored by digest get a strong ETag of the digest, older files a weak one of their size and modification
+ * time. Conditional requests are answered with a 304 and a single byte range (as requested by browsers seeking in
+ * a video) with a 206. The file is copied to the response through a {@link FileChannel} so that it is never held
+ * in memory, however large it is.
+ *
+ * @author James Nord
+ */
+final class EmbedServer implements HttpResponse {
+
+	private static final Logger LOGGER = Logger.getLogger(EmbedServer.class.getName());
+
+	/** Returned by {@link #parseRange(String, long)} for a range that is outside of the file. */
+	static final long[] UNSATISFIABLE = new long[0];
+
+	/** The names of embedded files are never reused, so browsers may keep them for as long as they like. */
+	private static final String CACHE_CONTROL = "private, max-age=31536000";
+
+	private final File file;
+	private final String mimeType;
+	private final String digest;
+
+
+	/**
+	 * @param file the file to serve.
+	 * @param mimeType the mime type of the file, possibly <code>null</code>.
+	 * @param digest the SHA-256 digest of the file, or <code>null</code> if it is not known.
+	 */
+	EmbedServer(File file, String mimeType, String digest) {
+		this.file = file;
+		this.mimeType = mimeType;
+		this.digest = digest;
+	}
+
+
+	@Override
+	public void generateResponse(StaplerRequest req, StaplerResponse rsp, Object node) throws IOException {
+		if (!file.isFile()) {
+			LOGGER.log(Level.WARNING, "Behave embedded file {0} is missing", file);
+			rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		long length = file.length();
+		long lastModified = file.lastModified();
+		String etag = getETag(length, lastModified);
+		rsp.setHeader("ETag", etag);
+		rsp.setDateHeader("Last-Modified", lastModified);
+		rsp.setHeader("Cache-Control", CACHE_CONTROL);
+		rsp.setHeader("Accept-Ranges", "bytes");
+		if (isNotModified(req, etag, lastModified)) {
+			rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		long start = 0;
+		long count = length;
+		String range = req.getHeader("Range");
+		if (range != null && isRangeCurrent(req, etag, lastModified)) {
+			long[] r = parseRange(range, length);
+			if (r == UNSATISFIABLE) {
+				rsp.setHeader("Content-Range", "bytes */" + length);
+				rsp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			if (r != null) {
+				start = r[0];
+				count = r[1] - r[0] + 1;
+				rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				rsp.setHeader("Content-Range", "bytes " + r[0] + '-' + r[1] + '/' + length);
+			}
+		}
+		rsp.setContentType(mimeType == null ? "application/octet-stream" : mimeType);
+		// setContentLength only takes an int and videos can be bigger than that.
+		rsp.setHeader("Content-Length", Long.toString(count));
+		if (!"HEAD".equals(req.getMethod())) {
+			transfer(file, start, count, rsp.getOutputStream());
+		}
+	}
+
+
+	String getETag(long length, long lastModified) {
+		if (digest != null) {
+			return '"' + digest + '"';
+		}
+		return "W/\"" + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+	}
+
+
+	/**
+	 * @return <code>true</code> if the request is conditional on a version of the file that is still current.
+	 */
+	static boolean isNotModified(StaplerRequest req, String etag, long lastModified) {
+		String ifNoneMatch = req.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			// If-Modified-Since is ignored when there is an If-None-Match.
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || weak(tag).equals(weak(etag))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long ifModifiedSince = getDateHeader(req, "If-Modified-Since");
+		// HTTP dates only have a resolution of a second.
+		return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+
+
+	/**
+	 * @return <code>true</code> if a range request is not conditional, or is conditional on the version of the file
+	 *         that is current.
+	 */
+	static boolean isRangeCurrent(StaplerRequest req, String etag, long lastModified) {
+		String ifRange = req.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			// only strong validators can be used for ranges.
+			return !etag.startsWith("W/") && ifRange.equals(etag);
+		}
+		long date = getDateHeader(req, "If-Range");
+		return date >= 0 && lastModified / 1000 == date / 1000;
+	}
+
+
+	/**
+	 * Parse a <code>Range</code> header. Only a single range is supported, a request for several is answered with
+	 * the whole file which is always allowed.
+	 *
+	 * @param range the value of the header.
+	 * @param length the length of the file.
+	 * @return the first and last byte of the range, <code>null</code> if the whole file should be served, or
+	 *         {@link #UNSATISFIABLE}.
+	 */
+	static long[] parseRange(String range, long length) {
+		range = range.trim();
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return null;
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		try {
+			if (dash == 0) {
+				// the last n bytes.
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix <= 0 || length == 0) {
+					return UNSATISFIABLE;
+				}
+				return new long[] {Math.max(0, length - suffix), length - 1};
+			}
+			long first = Long.parseLong(spec.substring(0, dash));
+			long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+			if (first < 0 || last < first) {
+				// syntactically invalid so ignored.
+				return null;
+			}
+			if (first >= length) {
+				return UNSATISFIABLE;
+			}
+			return new long[] {first, Math.min(last, length - 1)};
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Copy part of a file to a stream through the channel of the file.
+	 */
+	static void transfer(File file, long position, long count, OutputStream os) throws IOException {
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// the stream belongs to the response so the channel that wraps it is not closed.
+			WritableByteChannel out = Channels.newChannel(os);
+			while (count > 0) {
+				long n = in.transferTo(position, count, out);
+				if (n <= 0) {
+					throw new IOException(file + " was truncated whilst it was being served");
+				}
+				position += n;
+				count -= n;
+			}
+		}
+	}
+
+
+	private static String weak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+
+	private static long getDateHeader(StaplerRequest req, String name) {
+		try {
+			return req.getDateHeader(name);
+		}
+		catch (IllegalArgumentException ex) {
+			// not a date.
+			return -1;
+		}
+	}
+}
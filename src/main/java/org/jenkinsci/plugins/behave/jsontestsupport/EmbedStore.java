@@ -0,0 +1,336 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Util;
+import hudson.model.Job;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the embedded items of every build of a job once for each distinct content, named by the SHA-256 digest
+ * of the content.
+ * <p>
+ * Each build records the digests that it references and the store counts the builds that reference each digest,
+ * so that a file is only removed when the last build that uses it is deleted.
+ *
+ * @author James Nord
+ */
+final class EmbedStore {
+
+	private static final Logger LOGGER = Logger.getLogger(EmbedStore.class.getName());
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The name of the store in the directory of the job. */
+	static final String STORE_DIR_NAME = "behave-embed";
+
+	/** The file in the directory of a build that lists the digests that the build references. */
+	static final String DIGESTS_FILE_NAME = "behave/embed.digests";
+
+	/** The file in the store with the reference count of each digest. */
+	private static final String REFS_FILE_NAME = "refs.txt";
+
+	private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+
+	/** Guards the reference counts of every store, builds are not archived or deleted often enough to need more. */
+	private static final Object LOCK = new Object();
+
+	private final File dir;
+
+
+	EmbedStore(File dir) {
+		this.dir = dir;
+	}
+
+
+	/**
+	 * @param job the job
+	 * @return the store of the job.
+	 */
+	static EmbedStore of(Job<?, ?> job) {
+		return new EmbedStore(new File(job.getRootDir(), STORE_DIR_NAME));
+	}
+
+
+	/**
+	 * @param digest the digest to check.
+	 * @return <code>true</code> if the digest could have been computed by {@link BehaveUtils#digest(File)}, and so
+	 *         is safe to use as a file name.
+	 */
+	static boolean isDigest(String digest) {
+		return digest != null && DIGEST.matcher(digest).matches();
+	}
+
+
+	/**
+	 * Get the path of the file that content is stored at relative to the store, the files are spread over
+	 * directories named after the first byte of the digest to keep each directory small.
+	 *
+	 * @param digest the digest of the content.
+	 * @return the relative path.
+	 */
+	static String getPath(String digest) {
+		return digest.substring(0, 2) + '/' + digest;
+	}
+
+
+	/**
+	 * @param digest the digest of the content.
+	 * @return the file the content is stored in, which may not exist.
+	 */
+	File getFile(String digest) {
+		return new File(dir, getPath(digest));
+	}
+
+
+	/**
+	 * Record that a build references the given digests. The references are added before the content is so that
+	 * the deletion of another build can not remove content that this build has found to be already stored.
+	 *
+	 * @param buildDir the directory of the build.
+	 * @param digests the digests that the build references.
+	 * @throws IOException if the references could not be saved.
+	 */
+	void addReferences(File buildDir, Collection<String> digests) throws IOException {
+		Set<String> unique = new LinkedHashSet<>(digests);
+		File digestsFile = new File(buildDir, DIGESTS_FILE_NAME);
+		synchronized (LOCK) {
+			List<String> lines = readLines(digestsFile);
+			// an archiver that runs twice in a build must not count the build twice.
+			unique.removeAll(lines);
+			if (unique.isEmpty()) {
+				return;
+			}
+			Map<String, Integer> refs = readRefs();
+			for (String digest : unique) {
+				Integer count = refs.get(digest);
+				refs.put(digest, count == null ? 1 : count + 1);
+			}
+			writeRefs(refs);
+			lines.addAll(unique);
+			writeLines(digestsFile, lines);
+		}
+	}
+
+
+	/**
+	 * Remove the references of a build, deleting the content that is no longer referenced by any build.
+	 *
+	 * @param buildDir the directory of the build.
+	 * @throws IOException if the references could not be saved.
+	 */
+	void removeReferences(File buildDir) throws IOException {
+		File digestsFile = new File(buildDir, DIGESTS_FILE_NAME);
+		synchronized (LOCK) {
+			List<String> digests = readLines(digestsFile);
+			if (digests.isEmpty()) {
+				return;
+			}
+			Map<String, Integer> refs = readRefs();
+			for (String digest : digests) {
+				Integer count = refs.get(digest);
+				if (count != null && count > 1) {
+					refs.put(digest, count - 1);
+					continue;
+				}
+				refs.remove(digest);
+				if (isDigest(digest)) {
+					File f = getFile(digest);
+					if (f.exists() && !f.delete()) {
+						LOGGER.log(Level.WARNING, "Failed to delete {0}", f);
+					}
+				}
+			}
+			writeRefs(refs);
+			if (!digestsFile.delete()) {
+				LOGGER.log(Level.FINE, "Failed to delete {0}", digestsFile);
+			}
+		}
+	}
+
+
+	/**
+	 * @param digests the digests to look for.
+	 * @return the digests whose content is not in the store.
+	 */
+	Set<String> missing(Collection<String> digests) {
+		Set<String> missing = new LinkedHashSet<>();
+		for (String digest : digests) {
+			if (!getFile(digest).exists()) {
+				missing.add(digest);
+			}
+		}
+		return missing;
+	}
+
+
+	/**
+	 * Create an empty directory in the store for content to be copied in to before it is {@link #add(File) added}.
+	 *
+	 * @return the directory.
+	 * @throws IOException if the directory could not be created.
+	 */
+	File createIncomingDir() throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		return Files.createTempDirectory(dir.toPath(), "incoming").toFile();
+	}
+
+
+	/**
+	 * Move the content from a directory laid out as the store is in to the store and delete the directory. Content
+	 * that is already stored, because another build copied it at the same time, is dropped, as is any file whose
+	 * content does not have the digest it is named by.
+	 *
+	 * @param incoming the directory created by {@link #createIncomingDir()}.
+	 * @throws IOException if the content could not be moved.
+	 */
+	void add(File incoming) throws IOException {
+		try {
+			File[] prefixes = incoming.listFiles();
+			if (prefixes == null) {
+				return;
+			}
+			for (File prefix : prefixes) {
+				File[] files = prefix.listFiles();
+				if (files == null) {
+					continue;
+				}
+				for (File f : files) {
+					if (!isDigest(f.getName())) {
+						continue;
+					}
+					// the content was copied from the agent, which can not be trusted to name it correctly.
+					if (!Files.isRegularFile(f.toPath(), LinkOption.NOFOLLOW_LINKS)
+					    || !f.getName().equals(BehaveUtils.digest(f))) {
+						LOGGER.log(Level.WARNING, "Discarding {0} as its content does not match its name", f);
+						continue;
+					}
+					File dest = getFile(f.getName());
+					File destDir = dest.getParentFile();
+					if (!destDir.isDirectory() && !destDir.mkdirs()) {
+						throw new IOException("Could not create " + destDir);
+					}
+					try {
+						// the content is named by its digest so it does not matter which copy wins.
+						Files.move(f.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+					}
+					catch (FileAlreadyExistsException ex) {
+						LOGGER.log(Level.FINE, "{0} is already stored", f.getName());
+					}
+				}
+			}
+		}
+		finally {
+			Util.deleteRecursive(incoming);
+		}
+	}
+
+
+	private Map<String, Integer> readRefs() throws IOException {
+		Map<String, Integer> refs = new TreeMap<>();
+		for (String line : readLines(new File(dir, REFS_FILE_NAME))) {
+			int idx = line.indexOf(' ');
+			if (idx > 0) {
+				try {
+					refs.put(line.substring(0, idx), Integer.valueOf(line.substring(idx + 1)));
+				}
+				catch (NumberFormatException ex) {
+					LOGGER.log(Level.WARNING, "Ignoring corrupt reference count {0}", line);
+				}
+			}
+		}
+		return refs;
+	}
+
+
+	private void writeRefs(Map<String, Integer> refs) throws IOException {
+		List<String> lines = new ArrayList<>(refs.size());
+		for (Map.Entry<String, Integer> e : refs.entrySet()) {
+			lines.add(e.getKey() + ' ' + e.getValue());
+		}
+		writeLines(new File(dir, REFS_FILE_NAME), lines);
+	}
+
+
+	private static List<String> readLines(File f) throws IOException {
+		List<String> lines = new ArrayList<>();
+		if (!f.exists()) {
+			return lines;
+		}
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), UTF8))) {
+			String line;
+			while ((line = r.readLine()) != null) {
+				if (!line.isEmpty()) {
+					lines.add(line);
+				}
+			}
+		}
+		return lines;
+	}
+
+
+	/**
+	 * Write the lines to a temporary file that then replaces the file, so that the file is never left half
+	 * written.
+	 */
+	private static void writeLines(File f, List<String> lines) throws IOException {
+		File parent = f.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create " + parent);
+		}
+		File tmp = new File(parent, f.getName() + ".tmp");
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), UTF8)) {
+			for (String line : lines) {
+				w.write(line);
+				w.write('\n');
+			}
+		}
+		Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -28,7 +28,7 @@ import java.io.Serializable;
 /**
  * An EmbeddedItem represents an item that has been embedded in a test report.
  * The actual copying of the item from the JSON (parsed on the slave) to the master happens in 
- * BehaveJSONParser.parse(String, AbstractBuild, Launcher, TaskListener)
+ * BehaveTestResultArchiver.perform(AbstractBuild, Launcher, BuildListener)
  * @author James Nord
  *
  */
@@ -40,9 +40,20 @@ public class EmbeddedItem implements Serializable {
 	/** The name if the embedded file on disk */
 	private final String filename;
 
+	/**
+	 * The SHA-256 digest of the content that the file is stored under in the {@link EmbedStore} of the job, or
+	 * <code>null</code> if the file is stored with the build.
+	 */
+	private final String digest;
+
 	public EmbeddedItem(String mimetype, String filename) {
+		this(mimetype, filename, null);
+	}
+
+	public EmbeddedItem(String mimetype, String filename, String digest) {
 		this.mimetype = mimetype;
 		this.filename = filename;
+		this.digest = digest;
 	}
 
 	protected String getFilename() {
@@ -53,4 +64,8 @@ public class EmbeddedItem implements Serializable {
 		return mimetype;
 	}
 
+	protected String getDigest() {
+		return digest;
+	}
+
 }
@@ -28,15 +28,19 @@ import hudson.model.AbstractBuild;
 import hudson.tasks.test.MetaTabulatedResult;
 import hudson.tasks.test.TestObject;
 import hudson.tasks.test.TestResult;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.ref.SoftReference;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -53,10 +57,18 @@ public class FeatureResult extends MetaTabulatedResult {
 
 	private static final long serialVersionUID = 995206500596875310L;
 
+	private static final Logger LOGGER = Logger.getLogger(FeatureResult.class.getName());
+
 	private final Feature feature;
 	private final String uri;
 	private transient AbstractBuild<?, ?> owner;
-	private transient String safeName;
+	private transient volatile String safeName;
+
+	/** Names the scenarios of this feature, created when they are first named. */
+	private transient SafeNameAllocator scenarioNames;
+
+	/** The table of the scenarios, created when it is first shown. */
+	private transient volatile ResultTable childTable;
 	
 	private final List<ScenarioResult> scenarioResults = new ArrayList<>();
 
@@ -72,11 +84,35 @@ public class FeatureResult extends MetaTabulatedResult {
 	private int failCount;
 	private int skipCount;
 	private float duration;
+
+	/** <code>false</code> if scenarios have been added or changed since the last {@link #tally()}. */
+	private transient boolean tallied;
 	
 	
 	// TODO should this be reset on loading from xStream
 	private BehaveTestResult parent;
 
+	/**
+	 * The segment that the scenarios of this feature have not yet been loaded from, or <code>null</code> if the
+	 * scenarios are in memory.
+	 */
+	private transient File segment;
+
+	/** The number of scenarios in the {@link #segment}. */
+	private transient int segmentScenarioCount;
+
+	/** The pool shared by the segments of the result. */
+	private transient StringPool segmentPool;
+
+	/**
+	 * The segment that the released details of the scenarios are read back from, or <code>null</code> if the
+	 * details were never released.
+	 */
+	private transient File detailSegment;
+
+	/** The last details read from the {@link #detailSegment}, kept for as long as the memory allows. */
+	private transient SoftReference<FeatureResult> details;
+
 	FeatureResult(String uri, Feature feature) {
 		this.uri = uri;
 		this.feature = feature;
@@ -109,14 +145,34 @@ public class FeatureResult extends MetaTabulatedResult {
 	
 	@Override
 	public Collection<ScenarioResult> getChildren() {
+		loadScenarios();
 		return scenarioResults;
 	}
 
 	@Exported(visibility=9)
 	public Collection<ScenarioResult> getScenarioResults() {
+		loadScenarios();
 		return scenarioResults;
 	}
 
+	/**
+	 * Get a scenario by its position in this feature.
+	 * @param index the index of the scenario.
+	 * @return the scenario or <code>null</code> if there is no such scenario.
+	 */
+	synchronized ScenarioResult getScenario(int index) {
+		loadScenarios();
+		return index >= 0 && index < scenarioResults.size() ? scenarioResults.get(index) : null;
+	}
+
+	/**
+	 * Get the number of scenarios in this feature without loading them.
+	 * @return the number of scenarios.
+	 */
+	synchronized int getScenarioCount() {
+		return segment != null ? segmentScenarioCount : scenarioResults.size();
+	}
+
 	@Override
 	public String getChildTitle() {
 		return "Behave Scenarios";
@@ -125,7 +181,7 @@ public class FeatureResult extends MetaTabulatedResult {
 
 	@Override
 	public boolean hasChildren() {
-		return !scenarioResults.isEmpty();
+		return getScenarioCount() != 0;
 	}
 
 
@@ -154,14 +210,30 @@ public class FeatureResult extends MetaTabulatedResult {
 
 	@Override
 	public TestResult findCorrespondingResult(String id) {
+		loadScenarios();
 		return scenariosByID.get(id);
 	}
 
 
 	@Override
 	public Collection<ScenarioResult> getFailedTests() {
+		loadScenarios();
 		return failedScenarioResults;
 	}
+
+
+	/**
+	 * @return the scenarios as a table that is shown a page at a time.
+	 */
+	public ResultTable getChildTable() {
+		// built outside of the lock of the feature, a table that is built twice is the same table.
+		ResultTable table = childTable;
+		if (table == null) {
+			table = new ResultTable(getChildren(), false);
+			childTable = table;
+		}
+		return table;
+	}
 	
 
 	public String getURI() {
@@ -175,19 +247,168 @@ public class FeatureResult extends MetaTabulatedResult {
 	void addScenarioResult(ScenarioResult scenarioResult) {
 		scenarioResults.add(scenarioResult);
 		scenarioResult.setParent(this);
+		invalidateTally();
+	}
+
+	/**
+	 * Mark the tally of this feature, and so that of its result, as needing to be recomputed.
+	 */
+	void invalidateTally() {
+		tallied = false;
+		if (parent != null) {
+			parent.invalidateTally();
+		}
 	}
 	
-	@Override
-	public synchronized String getSafeName() {
-		if (safeName != null) {
-			return safeName;
+	/**
+	 * Mark this feature as stored in a segment that its scenarios will be loaded from the first time they are
+	 * needed. Until then the counts are those that were stored alongside the segment.
+	 */
+	synchronized void setSegment(File segment, StringPool pool, int scenarioCount, int passCount, int failCount,
+	                             int skipCount, float duration) {
+		this.segment = segment;
+		this.segmentPool = pool;
+		this.segmentScenarioCount = scenarioCount;
+		this.passCount = passCount;
+		this.failCount = failCount;
+		this.skipCount = skipCount;
+		this.duration = duration;
+	}
+
+	/**
+	 * @return <code>true</code> if the scenarios of this feature are in memory.
+	 */
+	synchronized boolean isLoaded() {
+		return segment == null;
+	}
+
+	/**
+	 * Load the scenarios from the {@link #segment} if they have not been loaded already.
+	 */
+	private synchronized void loadScenarios() {
+		if (segment == null) {
+			return;
+		}
+		File file = segment;
+		StringPool pool = segmentPool;
+		segment = null;
+		segmentPool = null;
+		try {
+			FeatureResult stored = BehaveResultFormat.readSegment(file, pool);
+			if (parent != null) {
+				parent.addEstimatedSize(BehaveResultFormat.estimateHeapSize(file));
+			}
+			for (ScenarioResult sr : stored.scenarioResults) {
+				// only the outcome is needed to navigate the result, the rest is read back when it is rendered.
+				sr.releaseDetails();
+				// the stored counts are still valid so the result does not need to be tallied again.
+				sr.setSegmentIndex(scenarioResults.size());
+				scenarioResults.add(sr);
+				sr.setParent(this);
+			}
+			detailSegment = file;
+			tallied = false;
+			tally();
+			setOwner(owner);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Failed to load " + file, ex);
+			// keep the stored counts so the summary is still correct.
+			failedScenarioResults = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Get the copy of a scenario of this feature with all of its gherkin details.
+	 * 
+	 * @param sr a scenario of this feature whose details have been released.
+	 * @return the detailed copy of the scenario, or <code>null</code> if it could not be read.
+	 */
+	synchronized ScenarioResult getDetailedScenario(ScenarioResult sr) {
+		int index = sr.getSegmentIndex();
+		if (index < 0 || index >= scenarioResults.size() || scenarioResults.get(index) != sr
+		    || detailSegment == null) {
+			return null;
+		}
+		FeatureResult stored = details == null ? null : details.get();
+		if (stored == null) {
+			try {
+				// the details are short lived so do not add their strings to the pool of the result.
+				stored = BehaveResultFormat.readSegment(detailSegment, new StringPool());
+			}
+			catch (IOException ex) {
+				LOGGER.log(Level.WARNING, "Failed to load the details of " + detailSegment, ex);
+				return null;
+			}
+			stored.setParent(parent);
+			stored.setSafeName(safeName);
+			details = new SoftReference<>(stored);
+		}
+		if (index >= stored.scenarioResults.size()) {
+			return null;
 		}
-		safeName = uniquifyName(parent.getChildren(), safe(feature.getId()));
+		ScenarioResult detailed = stored.scenarioResults.get(index);
+		detailed.setOwner(owner);
+		return detailed;
+	}
+
+
+	/**
+	 * Set the safe name that was previously computed for this feature.
+	 */
+	void setSafeName(String safeName) {
+		this.safeName = safeName;
+	}
+
+	/**
+	 * Give every scenario of this feature that does not have a safe name one, in a single pass over the scenarios.
+	 */
+	void assignSafeNames() {
+		// get the name of this feature first as naming the features takes the lock of the result.
+		String prefix = getSafeName() + ';';
+		synchronized (this) {
+			loadScenarios();
+			if (scenarioNames == null) {
+				scenarioNames = new SafeNameAllocator();
+			}
+			for (ScenarioResult sr : scenarioResults) {
+				String name = sr.getAssignedSafeName();
+				if (name != null) {
+					scenarioNames.reserve(name);
+				}
+			}
+			for (ScenarioResult sr : scenarioResults) {
+				if (sr.getAssignedSafeName() == null) {
+					sr.setSafeName(scenarioNames.allocate(sr.getBaseSafeName(prefix)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the safe name of this feature if it has been given one, otherwise <code>null</code>.
+	 */
+	String getAssignedSafeName() {
 		return safeName;
 	}
 
+	@Override
+	public String getSafeName() {
+		String name = safeName;
+		if (name == null) {
+			parent.assignSafeNames();
+			name = safeName;
+		}
+		return name;
+	}
+
 	@Override
 	public void tally() {
+		if (segment != null || tallied) {
+			// the stored counts are still valid and the rest will be computed when the scenarios are loaded.
+			return;
+		}
+		childTable = null;
 		if (scenariosByID == null) {
 			scenariosByID = new TreeMap<>();
 		}
@@ -217,6 +438,7 @@ public class FeatureResult extends MetaTabulatedResult {
 				failedScenarioResults.add(sr);
 			}
 		}
+		tallied = true;
 	}
 	
 
@@ -249,6 +471,7 @@ public class FeatureResult extends MetaTabulatedResult {
 		if (token.equals(getId())) {
 			return this;
 		}
+		loadScenarios();
 		ScenarioResult result = scenariosByID.get(token);
 		if (result != null) {
 			return result;
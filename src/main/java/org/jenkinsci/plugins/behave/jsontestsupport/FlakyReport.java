@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.AbstractProject;
+import hudson.model.Api;
+
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The scenarios of a project whose outcome changes from build to build without them being fixed or broken, served
+ * at <code>flaky</code> under the project action.
+ * 
+ * @author James Nord
+ */
+@ExportedBean
+public final class FlakyReport {
+
+	private final AbstractProject<?, ?> project;
+
+	private List<FlakyScenario> scenarios;
+
+
+	FlakyReport(AbstractProject<?, ?> project) {
+		this.project = project;
+	}
+
+
+	public AbstractProject<?, ?> getProject() {
+		return project;
+	}
+
+
+	public String getDisplayName() {
+		return "Flaky Behave Scenarios";
+	}
+
+
+	/**
+	 * @return the number of builds that the flakiness is measured over.
+	 */
+	@Exported
+	public int getWindow() {
+		return ScenarioHistory.WINDOW;
+	}
+
+
+	/**
+	 * @return the scenarios whose outcome has changed within the window, the flakiest first.
+	 */
+	@Exported(inline = true)
+	public synchronized List<FlakyScenario> getScenarios() {
+		if (scenarios == null) {
+			scenarios = ScenarioHistory.of(project).getFlakyScenarios();
+		}
+		return scenarios;
+	}
+
+
+	public Api getApi() {
+		return new Api(this);
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * How often the outcome of a scenario has changed over the builds in the {@link ScenarioHistory} of its job.
+ * 
+ * @author James Nord
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class FlakyScenario {
+
+	private final String id;
+	private final int runs;
+	private final int failures;
+	private final int flips;
+	private final int lastBuild;
+
+
+	FlakyScenario(String id, int runs, int failures, int flips, int lastBuild) {
+		this.id = id;
+		this.runs = runs;
+		this.failures = failures;
+		this.flips = flips;
+		this.lastBuild = lastBuild;
+	}
+
+
+	/**
+	 * @return the id of the scenario relative to the {@link BehaveTestResult}.
+	 */
+	@Exported
+	public String getId() {
+		return id;
+	}
+
+
+	/**
+	 * @return the number of runs of the scenario that were not skipped.
+	 */
+	@Exported
+	public int getRuns() {
+		return runs;
+	}
+
+
+	@Exported
+	public int getFailures() {
+		return failures;
+	}
+
+
+	/**
+	 * @return the number of times the scenario passed after failing or failed after passing.
+	 */
+	@Exported
+	public int getFlips() {
+		return flips;
+	}
+
+
+	/**
+	 * @return the fraction of the runs after the first whose outcome differed from the run before.
+	 */
+	@Exported
+	public float getFlipRate() {
+		return runs < 2 ? 0.0f : (float) flips / (runs - 1);
+	}
+
+
+	/**
+	 * @return the {@link #getFlipRate() flip rate} as a whole percentage.
+	 */
+	public int getFlipPercentage() {
+		return Math.round(getFlipRate() * 100);
+	}
+
+
+	/**
+	 * @return the last build the scenario ran in.
+	 */
+	@Exported
+	public int getLastBuild() {
+		return lastBuild;
+	}
+}
@@ -23,9 +23,13 @@
  */
 package org.jenkinsci.plugins.behave.jsontestsupport;
 
+import behave.gherkin.formatter.Argument;
 import behave.gherkin.formatter.Formatter;
 import behave.gherkin.formatter.Reporter;
 import behave.gherkin.formatter.model.Background;
+import behave.gherkin.formatter.model.Comment;
+import behave.gherkin.formatter.model.DataTableRow;
+import behave.gherkin.formatter.model.DocString;
 import behave.gherkin.formatter.model.Examples;
 import behave.gherkin.formatter.model.Feature;
 import behave.gherkin.formatter.model.Match;
@@ -38,12 +42,16 @@ import hudson.model.TaskListener;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The implementation that gets called back by the Gherkin parser.
+ * <p>
+ * The model objects handed to us are rebuilt with their strings taken from a {@link StringPool} so that the text
+ * repeated throughout a suite is only held once.
  * 
  * @author James Nord
  */
@@ -64,14 +72,27 @@ class GherkinCallback implements Formatter, Reporter {
 
 	private BehaveTestResult testResult;
 
+	private final StringPool pool;
+
 
 	GherkinCallback(BehaveTestResult testResult) {
+		this(testResult, new StringPool());
+	}
+
+
+	GherkinCallback(BehaveTestResult testResult, StringPool pool) {
 		this.testResult = testResult;
+		this.pool = pool;
 	}
 
 
 	GherkinCallback(BehaveTestResult testResult, TaskListener listener, boolean ignoreBadSteps){
-		this(testResult);
+		this(testResult, listener, ignoreBadSteps, new StringPool());
+	}
+
+
+	GherkinCallback(BehaveTestResult testResult, TaskListener listener, boolean ignoreBadSteps, StringPool pool){
+		this(testResult, pool);
 		this.listener = listener;
 		this.ignoreBadSteps = ignoreBadSteps;
 	}
@@ -86,7 +107,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.SEVERE, "URI received before previous uri handled");
 			throw new BehaveModelException("URI received before previous uri handled");
 		}
-		currentURI = uri;
+		currentURI = pool.intern(uri);
 	}
 
 
@@ -101,7 +122,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.FINE, "         {0}", feature.getDescription());
 		}
 		// a new feature being received signals the end of the previous feature
-		currentFeatureResult = new FeatureResult(currentURI, feature);
+		currentFeatureResult = new FeatureResult(currentURI, pooled(feature));
 		currentURI = null;
 		testResult.addFeatureResult(currentFeatureResult);
 	}
@@ -115,7 +136,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.SEVERE, "Background: '{'{0}'}' received before previous background: '{'{1}'}' handled", new Object[]{background.getName(), currentBackground.getName()});
 			throw new BehaveModelException("Background: {" + background.getName() + "} received before previous background: {" + currentBackground.getName()+ "} handled");
 		}
-		currentBackground = new BackgroundResult(background);
+		currentBackground = new BackgroundResult(pooled(background));
 	}
 
 
@@ -131,7 +152,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.FINE, "          {0}", scenario.getComments());
 		}
 		// a new scenario signifies that the previous scenario has been handled.
-		currentScenarioResult = new ScenarioResult(scenario, currentBackground);
+		currentScenarioResult = new ScenarioResult(pooled(scenario), currentBackground);
 		currentBackground = null;
 		currentFeatureResult.addScenarioResult(currentScenarioResult);
 	}
@@ -181,7 +202,7 @@ class GherkinCallback implements Formatter, Reporter {
 				throw new BehaveModelException(error);
 			}
 		}
-		currentStep = step;
+		currentStep = pooled(step);
 	}
 
 	// marks the end of a feature
@@ -232,7 +253,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.FINE, "rep        result : {0}", BehaveUtils.listToString(result.getErrorMessage()));
 			LOG.log(Level.FINE, "rep        result : {0}", result.getError());
 		}
-		currentScenarioResult.addBeforeResult(new BeforeAfterResult(match, result));
+		currentScenarioResult.addBeforeResult(new BeforeAfterResult(pooled(match), result, pool));
 	}
 
 
@@ -245,7 +266,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.FINE, "rep          {0}", BehaveUtils.listToString(result.getErrorMessage()));
 			LOG.log(Level.FINE, "rep          {0}", result.getError());
 		}
-		StepResult stepResult = new StepResult(currentStep, currentMatch, result);
+		StepResult stepResult = new StepResult(currentStep, currentMatch, result, pool);
 		if (currentBackground != null) {
 			currentBackground.addStepResult(stepResult);
 		}
@@ -267,7 +288,7 @@ class GherkinCallback implements Formatter, Reporter {
 			LOG.log(Level.FINE, "rep        result : {0}", BehaveUtils.listToString(result.getErrorMessage()));
 			LOG.log(Level.FINE, "rep        result : {0}", result.getError());
 		}
-		currentScenarioResult.addAfterResult(new BeforeAfterResult(match, result));
+		currentScenarioResult.addAfterResult(new BeforeAfterResult(pooled(match), result, pool));
 	}
 
 
@@ -281,7 +302,7 @@ class GherkinCallback implements Formatter, Reporter {
 			throw new BehaveModelException("Match: " + match.getLocation() + " received before previous Match: " +
 					currentMatch.getLocation()+ "handled");
 		}
-		currentMatch = match;
+		currentMatch = pooled(match);
 	}
 
 
@@ -289,9 +310,7 @@ class GherkinCallback implements Formatter, Reporter {
 	public void embedding(String mimeType, byte[] data) {
 		LOG.log(Level.FINE, "rep  embedding: {0}", mimeType);
 		try {
-			File f = BehaveUtils.createEmbedFile(data);
-			EmbeddedItem embed = new EmbeddedItem(mimeType, f.getName());
-			currentScenarioResult.addEmbeddedItem(embed);
+			embedding(mimeType, BehaveUtils.createEmbedFile(data));
 		}
 		catch (IOException ex) {
 			throw new BehavePluginException("Failed to write embedded data to temporary file", ex);
@@ -299,9 +318,111 @@ class GherkinCallback implements Formatter, Reporter {
 	}
 
 
+	/**
+	 * Add an embedding whose data has already been written to a temporary file, as done by the
+	 * {@link BehaveJSONStreamParser} to avoid holding the decoded data in memory.
+	 * 
+	 * @param mimeType the mime type of the embedding.
+	 * @param file the temporary file created by {@link BehaveUtils#createEmbedFile()}.
+	 */
+	void embedding(String mimeType, File file) {
+		LOG.log(Level.FINE, "rep  embedding file: {0}", mimeType);
+		String digest;
+		try {
+			digest = BehaveUtils.digest(file);
+		}
+		catch (IOException ex) {
+			throw new BehavePluginException("Failed to compute the digest of embedded data", ex);
+		}
+		currentScenarioResult.addEmbeddedItem(new EmbeddedItem(mimeType, file.getName(), digest));
+	}
+
+
         @Override
 	public void write(String text) {
 		LOG.log(Level.FINE, "rep  write: {0}", text);
 	}
 
+
+	// String pooling
+
+	private Feature pooled(Feature f) {
+		return new Feature(pooledComments(f.getComments()), pooledTags(f.getTags()), pool.intern(f.getKeyword()),
+		                   pool.intern(f.getName()), pool.intern(f.getDescription()), f.getLine(),
+		                   pool.intern(f.getId()));
+	}
+
+
+	private Background pooled(Background b) {
+		return new Background(pooledComments(b.getComments()), pool.intern(b.getKeyword()), pool.intern(b.getName()),
+		                      pool.intern(b.getDescription()), b.getLine());
+	}
+
+
+	private Scenario pooled(Scenario s) {
+		return new Scenario(pooledComments(s.getComments()), pooledTags(s.getTags()), pool.intern(s.getKeyword()),
+		                    pool.intern(s.getName()), pool.intern(s.getDescription()), s.getLine(),
+		                    pool.intern(s.getId()));
+	}
+
+
+	private Step pooled(Step step) {
+		List<DataTableRow> rows = step.getRows();
+		if (rows != null) {
+			List<DataTableRow> pooledRows = new ArrayList<>(rows.size());
+			for (DataTableRow row : rows) {
+				pooledRows.add(new DataTableRow(pooledComments(row.getComments()), pool.intern(row.getCells()),
+				                                row.getLine()));
+			}
+			rows = pooledRows;
+		}
+		DocString docString = step.getDocString();
+		if (docString != null) {
+			docString = new DocString(pool.intern(docString.getContentType()), pool.intern(docString.getValue()),
+			                          docString.getLine());
+		}
+		return new Step(pooledComments(step.getComments()), pool.intern(step.getKeyword()),
+		                pool.intern(step.getName()), step.getLine(), rows, docString);
+	}
+
+
+	private Match pooled(Match match) {
+		if (match == null) {
+			return null;
+		}
+		List<Argument> args = match.getArguments();
+		if (args != null) {
+			List<Argument> pooledArgs = new ArrayList<>(args.size());
+			for (Argument arg : args) {
+				pooledArgs.add(new Argument(arg.getOffset(), pool.intern(arg.getVal())));
+			}
+			args = pooledArgs;
+		}
+		return new Match(args, pool.intern(match.getLocation()));
+	}
+
+
+	private List<Comment> pooledComments(List<Comment> comments) {
+		if (comments == null) {
+			return null;
+		}
+		List<Comment> pooled = new ArrayList<>(comments.size());
+		for (Comment c : comments) {
+			pooled.add(new Comment(pool.intern(c.getValue()), c.getLine()));
+		}
+		return pooled;
+	}
+
+
+	private List<Tag> pooledTags(List<Tag> tags) {
+		if (tags == null) {
+			return null;
+		}
+		List<Tag> pooled = new ArrayList<>(tags.size());
+		for (Tag t : tags) {
+			pooled.add(new Tag(pool.intern(t.getName()), t.getLine()));
+		}
+		return pooled;
+	}
+
 }
@@ -0,0 +1,451 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Util;
+import hudson.tasks.test.TestResult;
+
+import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * The results listed in a table of a report, which is shown a page at a time and sorted and filtered on the
+ * server so that a build with thousands of features, or a tag with thousands of scenarios, does not produce a page
+ * that takes seconds to build and to show.
+ * <p>
+ * The order of each {@link Sort} is computed the first time that it is used and kept as an array of the indexes of
+ * the results, so a page is read straight out of the array. A filter has to skip the names that do not match
+ * before the page, but stops once the page is full.
+ * <p>
+ * The tables of a report are told apart by the prefix of their request parameters, <code>sort</code>,
+ * <code>reverse</code>, <code>filter</code> and <code>start</code>, so each can be paged on its own. The links
+ * of a table keep the parameters of the other tables.
+ * 
+ * @author James Nord
+ */
+public final class ResultTable {
+
+	/**
+	 * The number of rows in a page, which can be set with the
+	 * <code>org.jenkinsci.plugins.behave.jsontestsupport.ResultTable.pageSize</code> system property.
+	 */
+	static final int PAGE_SIZE = Math.max(1, Integer.getInteger(ResultTable.class.getName() + ".pageSize", 100));
+
+	/**
+	 * The orders of a table, each of which puts the rows that most need looking at first.
+	 */
+	public enum Sort {
+		/** By name, ignoring case. */
+		NAME,
+		/** Failures first, then skipped, by the number of each for features and tags. */
+		STATUS,
+		/** Longest first. */
+		DURATION,
+		/** Failing for the most builds first, only meaningful for scenarios. */
+		AGE
+	}
+
+	/** The names of the request parameters of a table, after its prefix. */
+	private static final Set<String> OWN_PARAMETERS =
+	      new HashSet<>(Arrays.asList("sort", "reverse", "filter", "start"));
+
+	private final TestResult[] results;
+
+	/** The displayed name of each result in lower case, to filter on. */
+	private final String[] names;
+
+	private final int[][] orders = new int[Sort.values().length][];
+
+
+	/**
+	 * @param results the rows of the table in their default order.
+	 * @param fullNames <code>true</code> to show the full name of scenarios, rather than the name within their
+	 *           feature.
+	 */
+	ResultTable(Collection<? extends TestResult> results, boolean fullNames) {
+		this.results = results.toArray(new TestResult[results.size()]);
+		names = new String[this.results.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = getName(this.results[i], fullNames).toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+
+	static String getName(TestResult result, boolean fullNames) {
+		String name = fullNames && result instanceof ScenarioResult ? ((ScenarioResult) result).getFullName()
+		      : result.getDisplayName();
+		return name == null ? "" : name;
+	}
+
+
+	/**
+	 * @return the number of rows in the table.
+	 */
+	public int getSize() {
+		return results.length;
+	}
+
+
+	/**
+	 * Get the page asked for by the parameters of a request.
+	 * 
+	 * @param req the request.
+	 * @param prefix the prefix of the parameters of this table.
+	 * @return the page.
+	 */
+	@SuppressWarnings("unchecked")
+	public Page getPage(StaplerRequest req, String prefix) {
+		return getPage(prefix, (Map<String, String[]>) req.getParameterMap());
+	}
+
+
+	/**
+	 * Get the page asked for by the parameters of a request. The parameters of the other tables of the report are
+	 * kept in the links of the page, so that paging this table leaves the others where they were.
+	 * 
+	 * @param prefix the prefix of the parameters of this table.
+	 * @param params the parameters of the request.
+	 * @return the page.
+	 */
+	Page getPage(String prefix, Map<String, String[]> params) {
+		Sort sort = Sort.NAME;
+		String s = getParameter(params, prefix + "sort");
+		if (s != null) {
+			try {
+				sort = Sort.valueOf(s.toUpperCase(Locale.ENGLISH));
+			}
+			catch (IllegalArgumentException ex) {
+				// an old or mistyped link, show the default order.
+			}
+		}
+		int start = 0;
+		s = getParameter(params, prefix + "start");
+		if (s != null) {
+			try {
+				start = Integer.parseInt(s);
+			}
+			catch (NumberFormatException ex) {
+				// start at the beginning.
+			}
+		}
+		List<Map.Entry<String, String>> others = new ArrayList<>();
+		for (Map.Entry<String, String[]> e : new TreeMap<>(params).entrySet()) {
+			if (!isParameterOf(e.getKey(), prefix)) {
+				for (String value : e.getValue()) {
+					others.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), value));
+				}
+			}
+		}
+		return getPage(prefix, sort, Boolean.parseBoolean(getParameter(params, prefix + "reverse")),
+		               getParameter(params, prefix + "filter"), start, PAGE_SIZE, others);
+	}
+
+
+	private static boolean isParameterOf(String name, String prefix) {
+		return name.startsWith(prefix) && OWN_PARAMETERS.contains(name.substring(prefix.length()));
+	}
+
+
+	private static String getParameter(Map<String, String[]> params, String name) {
+		String[] values = params.get(name);
+		return values == null || values.length == 0 ? null : values[0];
+	}
+
+
+	/**
+	 * Get a page of the table.
+	 * 
+	 * @param prefix the prefix of the parameters of this table.
+	 * @param sort the order of the rows.
+	 * @param reverse <code>true</code> to reverse the order.
+	 * @param filter the text that the names of the rows must contain, ignoring case, or <code>null</code>.
+	 * @param start the number of matching rows before the page.
+	 * @param size the maximum number of rows in the page.
+	 * @return the page.
+	 */
+	Page getPage(String prefix, Sort sort, boolean reverse, String filter, int start, int size) {
+		return getPage(prefix, sort, reverse, filter, start, size, Collections.<Map.Entry<String, String>>emptyList());
+	}
+
+
+	private Page getPage(String prefix, Sort sort, boolean reverse, String filter, int start, int size,
+	                     List<Map.Entry<String, String>> others) {
+		int[] order = getOrder(sort);
+		String match = filter == null ? "" : filter.trim().toLowerCase(Locale.ENGLISH);
+		start = Math.max(0, start);
+		List<TestResult> rows = new ArrayList<>(Math.min(size, order.length));
+		boolean more = false;
+		int matched = 0;
+		for (int i = match.isEmpty() ? start : 0; i < order.length; i++) {
+			int idx = order[reverse ? order.length - 1 - i : i];
+			if (!match.isEmpty() && (!names[idx].contains(match) || matched++ < start)) {
+				continue;
+			}
+			if (rows.size() == size) {
+				more = true;
+				break;
+			}
+			rows.add(results[idx]);
+		}
+		return new Page(prefix, sort, reverse, match.isEmpty() ? null : filter.trim(), start, size, rows, more,
+		                others);
+	}
+
+
+	private synchronized int[] getOrder(Sort sort) {
+		int[] order = orders[sort.ordinal()];
+		if (order == null) {
+			order = sort == Sort.NAME ? sortByName() : sortByKey(getKeys(sort), getOrder(Sort.NAME));
+			orders[sort.ordinal()] = order;
+		}
+		return order;
+	}
+
+
+	private int[] sortByName() {
+		Integer[] idx = indexes();
+		Arrays.sort(idx, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int c = names[o1].compareTo(names[o2]);
+				return c != 0 ? c : o1.compareTo(o2);
+			}
+		});
+		return unbox(idx);
+	}
+
+
+	/**
+	 * Sort by a key, largest first, with rows that have the same key in the order of their names.
+	 */
+	private int[] sortByKey(final long[] keys, int[] byName) {
+		final int[] rank = new int[byName.length];
+		for (int i = 0; i < byName.length; i++) {
+			rank[byName[i]] = i;
+		}
+		Integer[] idx = indexes();
+		Arrays.sort(idx, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int c = Long.compare(keys[o2], keys[o1]);
+				return c != 0 ? c : Integer.compare(rank[o1], rank[o2]);
+			}
+		});
+		return unbox(idx);
+	}
+
+
+	private long[] getKeys(Sort sort) {
+		long[] keys = new long[results.length];
+		for (int i = 0; i < keys.length; i++) {
+			TestResult r = results[i];
+			switch (sort) {
+				case STATUS:
+					keys[i] = ((long) r.getFailCount() << 32) | r.getSkipCount();
+					break;
+				case DURATION:
+					keys[i] = Math.round(r.getDuration() * 1000d);
+					break;
+				case AGE:
+					keys[i] = r instanceof ScenarioResult ? ((ScenarioResult) r).getAge() : 0;
+					break;
+				default:
+					throw new IllegalArgumentException("Not sorted by a key " + sort);
+			}
+		}
+		return keys;
+	}
+
+
+	private Integer[] indexes() {
+		Integer[] idx = new Integer[results.length];
+		for (int i = 0; i < idx.length; i++) {
+			idx[i] = i;
+		}
+		return idx;
+	}
+
+
+	private static int[] unbox(Integer[] idx) {
+		int[] order = new int[idx.length];
+		for (int i = 0; i < idx.length; i++) {
+			order[i] = idx[i];
+		}
+		return order;
+	}
+
+
+	/**
+	 * A page of a {@link ResultTable}, with the links to the pages around it.
+	 */
+	public static final class Page {
+
+		private final String prefix;
+		private final Sort sort;
+		private final boolean reverse;
+		private final String filter;
+		private final int start;
+		private final int size;
+		private final List<TestResult> rows;
+		private final boolean more;
+		private final List<Map.Entry<String, String>> others;
+
+
+		Page(String prefix, Sort sort, boolean reverse, String filter, int start, int size, List<TestResult> rows,
+		     boolean more, List<Map.Entry<String, String>> others) {
+			this.prefix = prefix;
+			this.sort = sort;
+			this.reverse = reverse;
+			this.filter = filter;
+			this.start = start;
+			this.size = size;
+			this.rows = Collections.unmodifiableList(rows);
+			this.more = more;
+			this.others = Collections.unmodifiableList(others);
+		}
+
+
+		public List<TestResult> getRows() {
+			return rows;
+		}
+
+
+		/**
+		 * @return the prefix of the request parameters of the table.
+		 */
+		public String getPrefix() {
+			return prefix;
+		}
+
+
+		/**
+		 * @return the request parameters of the other tables of the report, to be kept by the links and the
+		 *         filter of this table.
+		 */
+		public List<Map.Entry<String, String>> getOtherParameters() {
+			return others;
+		}
+
+
+		public String getSort() {
+			return sort.name().toLowerCase(Locale.ENGLISH);
+		}
+
+
+		public boolean isReverse() {
+			return reverse;
+		}
+
+
+		/**
+		 * @return the filter, or <code>null</code> if every row is shown.
+		 */
+		public String getFilter() {
+			return filter;
+		}
+
+
+		/**
+		 * @return the number of the first row in the page, counting from one.
+		 */
+		public int getFirst() {
+			return start + 1;
+		}
+
+
+		/**
+		 * @return the number of the last row in the page, counting from one.
+		 */
+		public int getLast() {
+			return start + rows.size();
+		}
+
+
+		public boolean isPaged() {
+			return start > 0 || more;
+		}
+
+
+		public boolean hasPrevious() {
+			return start > 0;
+		}
+
+
+		public boolean hasNext() {
+			return more;
+		}
+
+
+		public String getPreviousUrl() {
+			return getUrl(sort, reverse, Math.max(0, start - size));
+		}
+
+
+		public String getNextUrl() {
+			return getUrl(sort, reverse, start + rows.size());
+		}
+
+
+		/**
+		 * @param sort the name of the {@link Sort}.
+		 * @return the link to the first page in that order, or in the reverse order if the page is already in that
+		 *         order.
+		 */
+		public String getSortUrl(String sort) {
+			Sort s = Sort.valueOf(sort.toUpperCase(Locale.ENGLISH));
+			return getUrl(s, s == this.sort && !reverse, 0);
+		}
+
+
+		private String getUrl(Sort sort, boolean reverse, int start) {
+			StringBuilder sb = new StringBuilder("?");
+			for (Map.Entry<String, String> e : others) {
+				sb.append(Util.rawEncode(e.getKey())).append('=').append(Util.rawEncode(e.getValue())).append('&');
+			}
+			sb.append(prefix).append("sort=").append(sort.name().toLowerCase(Locale.ENGLISH));
+			if (reverse) {
+				sb.append('&').append(prefix).append("reverse=true");
+			}
+			if (filter != null) {
+				sb.append('&').append(prefix).append("filter=").append(Util.rawEncode(filter));
+			}
+			if (start > 0) {
+				sb.append('&').append(prefix).append("start=").append(start);
+			}
+			return sb.toString();
+		}
+	}
+}
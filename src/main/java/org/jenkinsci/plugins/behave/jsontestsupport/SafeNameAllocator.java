@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gives the children of a result unique safe names in a single pass over the children.
+ * <p>
+ * The names are the same as {@link hudson.tasks.test.TestObject#uniquifyName} gives when the children are named
+ * in order, the first child with a name keeps it and the others get a suffix of <code>_2</code>, <code>_3</code>
+ * and so on, but each name is found without scanning the siblings that have already been named.
+ * <p>
+ * Instances are not thread safe and are used whilst holding the lock of the result whose children they name.
+ * 
+ * @author James Nord
+ */
+final class SafeNameAllocator {
+
+	private final Set<String> taken = new HashSet<>();
+
+	/** The next suffix to try for a name that has been taken, so that suffixes are not tried more than once. */
+	private final Map<String, Integer> suffixes = new HashMap<>();
+
+
+	/**
+	 * Record a name that was given to a child previously, such as one that was stored with the result.
+	 * 
+	 * @param name the name of the child.
+	 */
+	void reserve(String name) {
+		taken.add(name);
+	}
+
+
+	/**
+	 * @param base the safe name of a child.
+	 * @return <code>base</code> if no other child has that name, otherwise the name with the lowest suffix that
+	 *         is free.
+	 */
+	String allocate(String base) {
+		if (taken.add(base)) {
+			return base;
+		}
+		Integer next = suffixes.get(base);
+		int suffix = next == null ? 2 : next;
+		String name;
+		do {
+			name = base + '_' + suffix++;
+		} while (!taken.add(name));
+		suffixes.put(base, suffix);
+		return name;
+	}
+}
@@ -0,0 +1,397 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cache of the HTML that {@link ScenarioToHTML} renders for the scenarios of completed builds, whose results no
+ * longer change.
+ * <p>
+ * Recently viewed pages are held in memory up to a budget that defaults to 16MB and can be set with the
+ * <code>org.jenkinsci.plugins.behave.jsontestsupport.ScenarioHTMLCache.maxBytes</code> system property. Every
+ * page is also written compressed to the directory of its build, under a directory named after the
+ * {@link ScenarioToHTML#VERSION} so that pages are rendered again when the renderer changes.
+ * 
+ * @author James Nord
+ */
+final class ScenarioHTMLCache {
+
+	private static final Logger LOGGER = Logger.getLogger(ScenarioHTMLCache.class.getName());
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** The directory in the build directory that the pages are written to. */
+	static final String CACHE_DIR_NAME = "behave/html-cache";
+
+	private static final ScenarioHTMLCache INSTANCE =
+	      new ScenarioHTMLCache(Long.getLong(ScenarioHTMLCache.class.getName() + ".maxBytes", 16L * 1024 * 1024));
+
+	/** The cached pages in least recently used order. */
+	private final LinkedHashMap<String, String> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final long maxBytes;
+	private long size;
+
+
+	ScenarioHTMLCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+
+	/**
+	 * @return the cache shared by every build.
+	 */
+	static ScenarioHTMLCache getInstance() {
+		return INSTANCE;
+	}
+
+
+	/**
+	 * Get the HTML of a scenario, rendering it only if it is not cached.
+	 * 
+	 * @param sr the scenario.
+	 * @return the HTML.
+	 */
+	String getHTML(ScenarioResult sr) {
+		StringWriter w = new StringWriter();
+		try {
+			write(sr, w);
+		}
+		catch (IOException ex) {
+			// a StringWriter does not throw.
+			throw new IllegalStateException(ex);
+		}
+		return w.toString();
+	}
+
+
+	/**
+	 * Write the HTML of a scenario, rendering it only if it is not cached. A page that is rendered or read from
+	 * disk is written as it goes, and is only held in memory if it takes less than a quarter of the budget.
+	 * 
+	 * @param sr the scenario.
+	 * @param out the writer to write to.
+	 * @throws IOException if the HTML could not be written.
+	 */
+	void write(ScenarioResult sr, Writer out) throws IOException {
+		AbstractBuild<?, ?> build = sr.getOwner();
+		if (build == null || build.isBuilding()) {
+			// the result may still change.
+			ScenarioToHTML.write(sr, out);
+			return;
+		}
+		String id = sr.getParent().getSafeName() + '/' + sr.getSafeName();
+		String key = BehaveTestResultAction.getCacheKey(build) + '/' + id;
+		String html = get(key);
+		if (html != null) {
+			out.write(html);
+			return;
+		}
+		File file = getFile(build, id);
+		PageWriter page = new PageWriter(out, maxBytes / 8);
+		if (!copy(file, page)) {
+			if (sr.getDetailedResult() == null) {
+				// do not keep a page that only says that the details could not be loaded.
+				ScenarioToHTML.write(sr, out);
+				return;
+			}
+			render(sr, file, page);
+		}
+		html = page.getCopy();
+		if (html != null) {
+			put(key, html);
+		}
+	}
+
+	/**
+	 * Remove the pages of a build from memory.
+	 * 
+	 * @param buildKey the {@link BehaveTestResultAction#getCacheKey(hudson.model.Run) key} of the build.
+	 */
+	synchronized void invalidate(String buildKey) {
+		String prefix = buildKey + '/';
+		for (Iterator<Map.Entry<String, String>> it = pages.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, String> e = it.next();
+			if (e.getKey().startsWith(prefix)) {
+				it.remove();
+				size -= weigh(e.getValue());
+			}
+		}
+	}
+
+
+	/**
+	 * @return the estimated size in bytes of the pages in memory.
+	 */
+	synchronized long getSize() {
+		return size;
+	}
+
+
+	private synchronized String get(String key) {
+		return pages.get(key);
+	}
+
+
+	private synchronized void put(String key, String html) {
+		String old = pages.put(key, html);
+		if (old != null) {
+			size -= weigh(old);
+		}
+		size += weigh(html);
+		Iterator<Map.Entry<String, String>> it = pages.entrySet().iterator();
+		while (size > maxBytes && it.hasNext()) {
+			Map.Entry<String, String> e = it.next();
+			if (e.getKey().equals(key)) {
+				continue;
+			}
+			it.remove();
+			size -= weigh(e.getValue());
+		}
+	}
+
+
+	private static long weigh(String html) {
+		return 2L * html.length() + 64;
+	}
+
+
+	/**
+	 * The pages are named by the digest of the id of the scenario, as the safe names of a scenario and its feature
+	 * may still be too long for a file name or name a parent directory.
+	 */
+	static File getFile(AbstractBuild<?, ?> build, String id) {
+		return new File(build.getRootDir(),
+		                CACHE_DIR_NAME + '/' + ScenarioToHTML.VERSION + '/' + Util.getDigestOf(id) + ".html.gz");
+	}
+
+
+	/**
+	 * Copy a page that is on disk.
+	 * 
+	 * @return <code>false</code> if there is no page to copy.
+	 */
+	private static boolean copy(File file, PageWriter page) throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		Reader r;
+		try {
+			r = new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), UTF8);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.FINE, "Failed to read the cached page " + file, ex);
+			return false;
+		}
+		try {
+			char[] buf = new char[8192];
+			int read;
+			while ((read = r.read(buf)) != -1) {
+				page.write(buf, 0, read);
+			}
+			return true;
+		}
+		finally {
+			r.close();
+		}
+	}
+
+
+	/**
+	 * Render the page whilst writing it to a temporary file that then replaces the file, so that a page is never
+	 * read half written. The pages of other versions of the renderer are removed when the first page of this
+	 * version is written.
+	 */
+	private static void render(ScenarioResult sr, File file, PageWriter page) throws IOException {
+		File tmp = null;
+		File dir = file.getParentFile();
+		try {
+			if (!dir.isDirectory()) {
+				File[] versions = dir.getParentFile().listFiles();
+				if (versions != null) {
+					for (File version : versions) {
+						Util.deleteRecursive(version);
+					}
+				}
+				if (!dir.mkdirs() && !dir.isDirectory()) {
+					throw new IOException("Could not create " + dir);
+				}
+			}
+			tmp = File.createTempFile("page", ".tmp", dir);
+			page.setFile(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tmp)), UTF8));
+		}
+		catch (IOException ex) {
+			// the page is still cached in memory and will be rendered again if it is evicted.
+			LOGGER.log(Level.FINE, "Failed to cache the page " + file, ex);
+		}
+		try {
+			ScenarioToHTML.write(sr, page);
+			if (page.closeFile()) {
+				try {
+					Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				catch (IOException ex) {
+					LOGGER.log(Level.FINE, "Failed to cache the page " + file, ex);
+				}
+			}
+		}
+		finally {
+			page.closeFile();
+			if (tmp != null && tmp.exists() && !tmp.delete()) {
+				LOGGER.log(Level.FINE, "Failed to delete {0}", tmp);
+			}
+		}
+	}
+
+
+	/**
+	 * Writes a page to the response as well as to the file it is cached in and to a copy that is dropped once it
+	 * grows too large to hold in memory. A failure to write the file only stops the file being written.
+	 */
+	private static final class PageWriter extends Writer {
+
+		private final Writer page;
+		private final long maxChars;
+		private StringBuilder copy = new StringBuilder();
+		private Writer file;
+		private boolean fileFailed;
+
+
+		PageWriter(Writer page, long maxChars) {
+			this.page = page;
+			this.maxChars = maxChars;
+		}
+
+
+		void setFile(Writer file) {
+			this.file = file;
+		}
+
+
+		/**
+		 * @return <code>true</code> if the whole page was written to the file.
+		 */
+		boolean closeFile() {
+			if (file == null) {
+				return false;
+			}
+			try {
+				file.close();
+			}
+			catch (IOException ex) {
+				LOGGER.log(Level.FINE, "Failed to close the cached page", ex);
+				fileFailed = true;
+			}
+			file = null;
+			return !fileFailed;
+		}
+
+
+		String getCopy() {
+			return copy == null ? null : copy.toString();
+		}
+
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			page.write(cbuf, off, len);
+			if (file != null) {
+				try {
+					file.write(cbuf, off, len);
+				}
+				catch (IOException ex) {
+					LOGGER.log(Level.FINE, "Failed to write the cached page", ex);
+					fileFailed = true;
+					closeFile();
+				}
+			}
+			if (copy != null) {
+				if (copy.length() + len > maxChars) {
+					copy = null;
+				}
+				else {
+					copy.append(cbuf, off, len);
+				}
+			}
+		}
+
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			page.write(str, off, len);
+			if (file != null) {
+				try {
+					file.write(str, off, len);
+				}
+				catch (IOException ex) {
+					LOGGER.log(Level.FINE, "Failed to write the cached page", ex);
+					fileFailed = true;
+					closeFile();
+				}
+			}
+			if (copy != null) {
+				if (copy.length() + len > maxChars) {
+					copy = null;
+				}
+				else {
+					copy.append(str, off, off + len);
+				}
+			}
+		}
+
+
+		@Override
+		public void flush() throws IOException {
+			page.flush();
+		}
+
+
+		@Override
+		public void close() throws IOException {
+			closeFile();
+		}
+	}
+}
@@ -0,0 +1,728 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The outcome and duration of every scenario of a job over its recent builds, so that the status, age and
+ * flakiness of a scenario can be found without loading the results of the previous builds.
+ * <p>
+ * Each scenario has bitmaps of the builds it ran, failed and was skipped in, indexed by the build number modulo
+ * the {@link #WINDOW}, its durations in the last {@link #DURATIONS} builds up to the last build it ran in, and
+ * the build that its current run of failures started in. Each tag is kept in the same way as a scenario, with the
+ * totals of its scenarios. Questions the history can not answer, such as those about builds that are older than the
+ * window or were recorded before the history was kept, are left to the previous results.
+ * <p>
+ * The file is a snapshot of every scenario followed by a log with a record for each build recorded since, holding
+ * the scenarios, outcomes and durations of the build as columns. Recording a build only appends to the log, and
+ * the snapshot is only rewritten once the log has grown to many times the number of scenarios, so the cost of
+ * recording a build is in proportion to the scenarios in the build rather than those in the history.
+ *
+ * @author James Nord
+ */
+final class ScenarioHistory {
+
+	private static final Logger LOGGER = Logger.getLogger(ScenarioHistory.class.getName());
+
+	/** The name of the history in the directory of the job. */
+	static final String FILE_NAME = "behave-history.bin";
+
+	/** "BHVH" */
+	private static final int MAGIC = 0x42485648;
+
+	/** The version that is written. Version 2 added the log, skipped scenarios and durations. */
+	private static final int VERSION = 2;
+
+	/** The number of builds that are remembered, rounded up to a whole number of words. */
+	static final int WINDOW =
+	      (Math.max(1, Integer.getInteger(ScenarioHistory.class.getName() + ".window", 256)) + 63) / 64 * 64;
+
+	/** The number of builds, up to the last build a scenario ran in, that its durations are remembered for. */
+	static final int DURATIONS =
+	      Math.min(WINDOW, Math.max(1, Integer.getInteger(ScenarioHistory.class.getName() + ".durations", 32)));
+
+	private static final int WORDS = WINDOW / 64;
+
+	/** The log is compacted in to the snapshot once it has this many runs for each scenario in the snapshot. */
+	private static final int COMPACT_RATIO = 16;
+
+	/** Tags are kept under their name after this prefix, which can not be in the key of a scenario. */
+	private static final String TAG_PREFIX = "tag:";
+
+	private static final int BUILD_RECORD = 1;
+	private static final int KEY_RECORD = 2;
+	private static final int FORGET_RECORD = 3;
+
+	private static final int PASSED = 0;
+	private static final int FAILED = 1;
+	private static final int SKIPPED = 2;
+
+	/** The outcome of the previous run of a scenario. */
+	enum Outcome {
+		PASSED,
+		FAILED,
+		/** The scenario has not run before. */
+		NONE,
+		/** The history does not go back far enough to tell. */
+		UNKNOWN
+	}
+
+	private static final Map<File, SoftReference<ScenarioHistory>> HISTORIES = new HashMap<>();
+
+	private final File file;
+
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/** The keys of the scenarios by the id that the log refers to them with. */
+	private final List<String> keys = new ArrayList<>();
+
+	/** Scenarios that have not run for a whole window, and so may have run before their next run. */
+	private final Set<String> retired = new HashSet<>();
+
+	/** The first build that was recorded, or <code>0</code> if none has been. */
+	private int firstBuild;
+
+	/** <code>true</code> if builds before the {@link #firstBuild} have results that were never recorded. */
+	private boolean earlierResults;
+
+	private int lastBuild;
+
+	/** The number of scenario runs in the log. */
+	private long loggedRuns;
+
+	/** <code>true</code> if the file must be rewritten rather than appended to. */
+	private boolean compact = true;
+
+
+	private ScenarioHistory(File file) {
+		this.file = file;
+	}
+
+
+	/**
+	 * @param job the job.
+	 * @return the history of the job, which is read the first time that it is needed.
+	 */
+	static ScenarioHistory of(Job<?, ?> job) {
+		File file = new File(job.getRootDir(), FILE_NAME);
+		synchronized (HISTORIES) {
+			SoftReference<ScenarioHistory> ref = HISTORIES.get(file);
+			ScenarioHistory history = ref == null ? null : ref.get();
+			if (history == null) {
+				history = read(file);
+				HISTORIES.put(file, new SoftReference<>(history));
+			}
+			return history;
+		}
+	}
+
+
+	/**
+	 * @param file the file the history is kept in, which need not exist.
+	 * @return the history in the file, or an empty history if the file does not exist or can not be used.
+	 */
+	static ScenarioHistory read(File file) {
+		ScenarioHistory history = new ScenarioHistory(file);
+		history.load();
+		return history;
+	}
+
+
+	/**
+	 * @param run a build.
+	 * @return <code>true</code> if a build before the given one has a behave result.
+	 */
+	static boolean hasEarlierResults(Run<?, ?> run) {
+		for (Run<?, ?> r = run.getPreviousBuild(); r != null; r = r.getPreviousBuild()) {
+			if (r.getAction(BehaveTestResultAction.class) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * @param sr a scenario.
+	 * @return the key of the scenario in the history.
+	 */
+	static String key(ScenarioResult sr) {
+		return sr.getParent().getSafeName() + '/' + sr.getSafeName();
+	}
+
+
+	/**
+	 * @return <code>true</code> if no build has been recorded yet.
+	 */
+	synchronized boolean isEmpty() {
+		return firstBuild == 0;
+	}
+
+
+	/**
+	 * Record the outcome of every scenario of a build, and set the build that each failed scenario started failing
+	 * in where the history knows it. Builds must be recorded in order for their failures to be followed.
+	 * 
+	 * @param number the number of the build.
+	 * @param result the result of the build.
+	 * @param earlierResults <code>true</code> if builds before this one have results, only used for the first
+	 *           build recorded.
+	 * @throws IOException if the history could not be saved.
+	 */
+	synchronized void record(int number, BehaveTestResult result, boolean earlierResults) throws IOException {
+		if (firstBuild == 0) {
+			firstBuild = number;
+			this.earlierResults = earlierResults;
+			compact = true;
+		}
+		int keyCount = keys.size();
+		List<Entry> runs = new ArrayList<>();
+		List<Integer> outcomes = new ArrayList<>();
+		List<Float> durations = new ArrayList<>();
+		for (FeatureResult fr : result.getFeatures()) {
+			for (ScenarioResult sr : fr.getScenarioResults()) {
+				int outcome = sr.getFailCount() != 0 ? FAILED : sr.getSkipCount() != 0 ? SKIPPED : PASSED;
+				Entry e = getOrCreate(key(sr));
+				int failedSince = update(e, number, outcome, sr.getDuration());
+				if (failedSince != 0 && sr.getStoredFailedSince() == 0) {
+					sr.setFailedSince(failedSince);
+				}
+				runs.add(e);
+				outcomes.add(outcome);
+				durations.add(sr.getDuration());
+			}
+		}
+		for (TagResult tr : result.getTagMap().values()) {
+			int outcome = tr.getFailCount() != 0 ? FAILED : tr.getPassCount() == 0 ? SKIPPED : PASSED;
+			Entry e = getOrCreate(TAG_PREFIX + tr.getName());
+			update(e, number, outcome, tr.getDuration());
+			runs.add(e);
+			outcomes.add(outcome);
+			durations.add(tr.getDuration());
+		}
+		lastBuild = Math.max(lastBuild, number);
+		loggedRuns += runs.size();
+		if (compact || loggedRuns > (long) entries.size() * COMPACT_RATIO) {
+			writeSnapshot();
+			return;
+		}
+		try (DataOutputStream out = openLog()) {
+			for (String key : keys.subList(keyCount, keys.size())) {
+				out.write(KEY_RECORD);
+				out.writeUTF(key);
+			}
+			out.write(BUILD_RECORD);
+			out.writeInt(number);
+			out.writeInt(runs.size());
+			for (Entry e : runs) {
+				out.writeInt(e.id);
+			}
+			for (Integer outcome : outcomes) {
+				out.write(outcome);
+			}
+			for (Float duration : durations) {
+				out.writeFloat(duration);
+			}
+		}
+		catch (IOException ex) {
+			// the log may now end part way through a record, which is dropped when it is read.
+			compact = true;
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * Forget a build that has been deleted, so that it is not taken as the previous run of its scenarios.
+	 * 
+	 * @param number the number of the build.
+	 * @throws IOException if the history could not be saved.
+	 */
+	synchronized void forget(int number) throws IOException {
+		if (firstBuild == 0 || number <= lastBuild - WINDOW) {
+			return;
+		}
+		clear(number);
+		if (compact) {
+			writeSnapshot();
+			return;
+		}
+		try (DataOutputStream out = openLog()) {
+			out.write(FORGET_RECORD);
+			out.writeInt(number);
+		}
+		catch (IOException ex) {
+			compact = true;
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * @param key the {@link #key(ScenarioResult) key} of the scenario.
+	 * @param number the number of the build that the scenario ran in.
+	 * @return the outcome of the run of the scenario before the given build.
+	 */
+	synchronized Outcome getPreviousOutcome(String key, int number) {
+		return getPreviousOutcome(key, entries.get(key), number);
+	}
+
+
+	/**
+	 * @param key the {@link #key(ScenarioResult) key} of the scenario.
+	 * @param number the number of the build that the scenario failed in.
+	 * @return the build that the failures of the scenario started in, or <code>0</code> if the history does not
+	 *         know.
+	 */
+	synchronized int getFailedSince(String key, int number) {
+		Entry e = entries.get(key);
+		return e != null && e.lastBuild == number ? e.failedSince : 0;
+	}
+
+
+	/**
+	 * Get the scenarios whose outcome has changed between runs that were not skipped within the window, the
+	 * flakiest first.
+	 * 
+	 * @return the flaky scenarios.
+	 */
+	synchronized List<FlakyScenario> getFlakyScenarios() {
+		List<FlakyScenario> flaky = new ArrayList<>();
+		for (Map.Entry<String, Entry> me : entries.entrySet()) {
+			if (me.getKey().startsWith(TAG_PREFIX)) {
+				continue;
+			}
+			Entry e = me.getValue();
+			int runs = 0;
+			int failures = 0;
+			int flips = 0;
+			boolean previousFailed = false;
+			for (int b = Math.max(firstBuild, e.lastBuild - WINDOW + 1); b <= e.lastBuild; b++) {
+				if (!isSet(e.ran, b) || isSet(e.skipped, b)) {
+					continue;
+				}
+				boolean failed = isSet(e.failed, b);
+				if (runs != 0 && failed != previousFailed) {
+					flips++;
+				}
+				if (failed) {
+					failures++;
+				}
+				previousFailed = failed;
+				runs++;
+			}
+			if (flips != 0) {
+				flaky.add(new FlakyScenario(me.getKey(), runs, failures, flips, e.lastBuild));
+			}
+		}
+		Collections.sort(flaky, new Comparator<FlakyScenario>() {
+			@Override
+			public int compare(FlakyScenario o1, FlakyScenario o2) {
+				int c = Float.compare(o2.getFlipRate(), o1.getFlipRate());
+				if (c == 0) {
+					c = o2.getFlips() - o1.getFlips();
+				}
+				return c != 0 ? c : o1.getId().compareTo(o2.getId());
+			}
+		});
+		return flaky;
+	}
+
+
+	/**
+	 * @param key the {@link #key(ScenarioResult) key} of a scenario.
+	 * @return the durations of the scenario, or <code>null</code> if it is not in the history.
+	 */
+	synchronized DurationTrend getScenarioTrend(String key) {
+		Entry e = key.startsWith(TAG_PREFIX) ? null : entries.get(key);
+		return e == null ? null : getTrend(key, e);
+	}
+
+
+	/**
+	 * @param name the name of a tag.
+	 * @return the durations of the scenarios with the tag, or <code>null</code> if it is not in the history.
+	 */
+	synchronized DurationTrend getTagTrend(String name) {
+		Entry e = entries.get(TAG_PREFIX + name);
+		return e == null ? null : getTrend(name, e);
+	}
+
+
+	/**
+	 * @param tags <code>true</code> for the trends of the tags, <code>false</code> for those of the scenarios.
+	 * @return the durations of every scenario or tag that has passed in any of the last {@link #DURATIONS} builds
+	 *         up to the last build it ran in.
+	 */
+	synchronized List<DurationTrend> getTrends(boolean tags) {
+		List<DurationTrend> trends = new ArrayList<>();
+		for (Map.Entry<String, Entry> me : entries.entrySet()) {
+			String key = me.getKey();
+			if (key.startsWith(TAG_PREFIX) != tags) {
+				continue;
+			}
+			DurationTrend trend = getTrend(tags ? key.substring(TAG_PREFIX.length()) : key, me.getValue());
+			if (trend.getRuns() != 0) {
+				trends.add(trend);
+			}
+		}
+		return trends;
+	}
+
+
+	/**
+	 * The durations of the runs that passed in the last {@link #DURATIONS} builds up to the last build the entry ran
+	 * in. Builds that failed are left out as they may have stopped early, and builds that were skipped, or that the
+	 * entry did not run in, are not counted as runs.
+	 */
+	private DurationTrend getTrend(String id, Entry e) {
+		int from = Math.max(firstBuild, e.lastBuild - DURATIONS + 1);
+		int[] builds = new int[Math.max(0, e.lastBuild - from + 1)];
+		float[] durations = new float[builds.length];
+		int runs = 0;
+		for (int b = from; b <= e.lastBuild; b++) {
+			if (isSet(e.ran, b) && !isSet(e.failed, b) && !isSet(e.skipped, b)) {
+				builds[runs] = b;
+				durations[runs] = e.durations[b % DURATIONS];
+				runs++;
+			}
+		}
+		return new DurationTrend(id, Arrays.copyOf(builds, runs), Arrays.copyOf(durations, runs));
+	}
+
+
+	private Entry getOrCreate(String key) {
+		Entry e = entries.get(key);
+		if (e == null) {
+			e = new Entry(keys.size());
+			keys.add(key);
+			entries.put(key, e);
+		}
+		return e;
+	}
+
+
+	/**
+	 * Add a run of a scenario to the history.
+	 * 
+	 * @return the build that the failures of the scenario started in, or <code>0</code> if it did not fail or the
+	 *         history does not know.
+	 */
+	private int update(Entry e, int number, int outcome, float duration) {
+		String key = keys.get(e.id);
+		int failedSince = 0;
+		if (outcome == FAILED) {
+			Outcome previous = getPreviousOutcome(key, e.isNew() ? null : e, number);
+			if (previous == Outcome.NONE || previous == Outcome.PASSED) {
+				failedSince = number;
+			}
+			else if (previous == Outcome.FAILED && number > e.lastBuild) {
+				// the previous run is the last one so its run of failures is the one that continues.
+				failedSince = e.failedSince;
+			}
+		}
+		e.set(number, outcome, duration, failedSince);
+		retired.remove(key);
+		return failedSince;
+	}
+
+
+	private Outcome getPreviousOutcome(String key, Entry e, int number) {
+		if (firstBuild == 0 || number < firstBuild) {
+			return Outcome.UNKNOWN;
+		}
+		boolean complete = !earlierResults && !retired.contains(key);
+		if (e == null) {
+			// a scenario that has run in a recorded build has an entry until it is retired.
+			return complete ? Outcome.NONE : Outcome.UNKNOWN;
+		}
+		int from = Math.max(firstBuild, e.lastBuild - WINDOW + 1);
+		for (int b = Math.min(number - 1, e.lastBuild); b >= from; b--) {
+			if (isSet(e.ran, b)) {
+				return isSet(e.failed, b) ? Outcome.FAILED : Outcome.PASSED;
+			}
+		}
+		return complete && from == firstBuild ? Outcome.NONE : Outcome.UNKNOWN;
+	}
+
+
+	private void clear(int number) {
+		for (Entry e : entries.values()) {
+			e.clear(number);
+		}
+	}
+
+
+	private DataOutputStream openLog() throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+	}
+
+
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != WINDOW ||
+			    in.readInt() != DURATIONS) {
+				// the history is only an index, so one that can not be used is started again.
+				LOGGER.log(Level.FINE, "Ignoring the history in {0} as it was kept differently", file);
+				return;
+			}
+			firstBuild = in.readInt();
+			earlierResults = in.readBoolean();
+			lastBuild = in.readInt();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				Entry e = getOrCreate(in.readUTF());
+				e.lastBuild = in.readInt();
+				e.failedSince = in.readInt();
+				for (int w = 0; w < WORDS; w++) {
+					e.ran[w] = in.readLong();
+					e.failed[w] = in.readLong();
+					e.skipped[w] = in.readLong();
+				}
+				for (int d = 0; d < DURATIONS; d++) {
+					e.durations[d] = in.readFloat();
+				}
+			}
+			int retiredCount = in.readInt();
+			for (int i = 0; i < retiredCount; i++) {
+				retired.add(in.readUTF());
+			}
+			compact = false;
+			readLog(in);
+		}
+		catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Failed to read the history in " + file, ex);
+			entries.clear();
+			keys.clear();
+			retired.clear();
+			firstBuild = 0;
+			lastBuild = 0;
+			loggedRuns = 0;
+			compact = true;
+		}
+	}
+
+
+	private void readLog(DataInputStream in) throws IOException {
+		int type;
+		while ((type = in.read()) != -1) {
+			try {
+				if (type == KEY_RECORD) {
+					getOrCreate(in.readUTF());
+				}
+				else if (type == FORGET_RECORD) {
+					clear(in.readInt());
+				}
+				else if (type == BUILD_RECORD) {
+					int number = in.readInt();
+					int[] ids = new int[in.readInt()];
+					for (int i = 0; i < ids.length; i++) {
+						ids[i] = in.readInt();
+						if (ids[i] < 0 || ids[i] >= keys.size()) {
+							throw new IOException("Unknown scenario " + ids[i]);
+						}
+					}
+					byte[] outcomes = new byte[ids.length];
+					in.readFully(outcomes);
+					float[] durations = new float[ids.length];
+					for (int i = 0; i < ids.length; i++) {
+						durations[i] = in.readFloat();
+					}
+					// only apply a record once it has all been read.
+					for (int i = 0; i < ids.length; i++) {
+						update(entries.get(keys.get(ids[i])), number, outcomes[i], durations[i]);
+					}
+					lastBuild = Math.max(lastBuild, number);
+					loggedRuns += ids.length;
+				}
+				else {
+					throw new IOException("Unknown record " + type);
+				}
+			}
+			catch (EOFException ex) {
+				LOGGER.log(Level.FINE, "Dropping the incomplete record at the end of {0}", file);
+				compact = true;
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Write the scenarios that have run within the window to a temporary file that then replaces the file, so that
+	 * it is never left half written, and start a new log.
+	 */
+	private void writeSnapshot() throws IOException {
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Entry> me = it.next();
+			if (me.getValue().lastBuild <= lastBuild - WINDOW) {
+				retired.add(me.getKey());
+				it.remove();
+			}
+		}
+		// the log refers to the scenarios by the order they are written in.
+		keys.clear();
+		keys.addAll(entries.keySet());
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(WINDOW);
+			out.writeInt(DURATIONS);
+			out.writeInt(firstBuild);
+			out.writeBoolean(earlierResults);
+			out.writeInt(lastBuild);
+			out.writeInt(keys.size());
+			for (int i = 0; i < keys.size(); i++) {
+				String key = keys.get(i);
+				Entry e = entries.get(key);
+				e.id = i;
+				out.writeUTF(key);
+				out.writeInt(e.lastBuild);
+				out.writeInt(e.failedSince);
+				for (int w = 0; w < WORDS; w++) {
+					out.writeLong(e.ran[w]);
+					out.writeLong(e.failed[w]);
+					out.writeLong(e.skipped[w]);
+				}
+				for (int d = 0; d < DURATIONS; d++) {
+					out.writeFloat(e.durations[d]);
+				}
+			}
+			out.writeInt(retired.size());
+			for (String key : retired) {
+				out.writeUTF(key);
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		loggedRuns = 0;
+		compact = false;
+	}
+
+
+	private static boolean isSet(long[] bits, int number) {
+		int bit = number % WINDOW;
+		return (bits[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+
+	private static void set(long[] bits, int number, boolean value) {
+		int bit = number % WINDOW;
+		if (value) {
+			bits[bit >>> 6] |= 1L << bit;
+		}
+		else {
+			bits[bit >>> 6] &= ~(1L << bit);
+		}
+	}
+
+
+	/** The history of one scenario. */
+	private static final class Entry {
+
+		final long[] ran = new long[WORDS];
+		final long[] failed = new long[WORDS];
+		final long[] skipped = new long[WORDS];
+
+		/** The durations of the runs, indexed by the build number modulo {@link #DURATIONS}. */
+		final float[] durations = new float[DURATIONS];
+
+		/** The id of the scenario in the log. */
+		int id;
+
+		/** The last build that the scenario ran in, or <code>0</code> if it has not run. */
+		int lastBuild;
+
+		/** The build that the failures of the {@link #lastBuild} started in, <code>0</code> if it did not fail. */
+		int failedSince;
+
+
+		Entry(int id) {
+			this.id = id;
+		}
+
+
+		boolean isNew() {
+			return lastBuild == 0;
+		}
+
+
+		void set(int number, int outcome, float duration, int failedSince) {
+			if (number > lastBuild) {
+				// the window has wrapped on to the bits of the builds since the last run.
+				for (int b = Math.max(lastBuild + 1, number - WINDOW + 1); b < number; b++) {
+					clear(b);
+				}
+				lastBuild = number;
+				this.failedSince = failedSince;
+			}
+			else if (number <= lastBuild - WINDOW) {
+				return;
+			}
+			ScenarioHistory.set(ran, number, true);
+			ScenarioHistory.set(failed, number, outcome == FAILED);
+			ScenarioHistory.set(skipped, number, outcome == SKIPPED);
+			if (number > lastBuild - DURATIONS) {
+				durations[number % DURATIONS] = duration;
+			}
+		}
+
+
+		void clear(int number) {
+			ScenarioHistory.set(ran, number, false);
+			ScenarioHistory.set(failed, number, false);
+			ScenarioHistory.set(skipped, number, false);
+		}
+	}
+}
@@ -29,25 +29,31 @@ import hudson.tasks.test.TestObject;
 import hudson.tasks.test.TestResult;
 
 import behave.gherkin.formatter.model.Scenario;
+import behave.gherkin.formatter.model.Tag;
+import org.apache.commons.jelly.XMLOutput;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.logging.Level;
+import java.util.Map;
 import java.util.logging.Logger;
-import javax.servlet.ServletException;
 
 /**
  * Represents a Scenario belonging to a Feature from Cucumber.
+ * <p>
+ * Once the result has been stored the gherkin details of the scenario (comments, descriptions, step text, tables
+ * and matches) are released and only the name, id, tags and the outcome of each step are held. The details are read
+ * back from the stored result by {@link #getDetailedResult()} when they are needed to render the scenario.
  * 
  * @author James Nord
  */
@@ -58,7 +64,12 @@ public class ScenarioResult extends TestResult {
 
 	private static final Logger LOGGER = Logger.getLogger(ScenarioResult.class.getName());
 
-	private final Scenario scenario;
+	/** Possibly <code>null</code> if the details of the scenario have been released. */
+	private Scenario scenario;
+
+	private String scenarioName;
+	private String scenarioId;
+	private List<String> tagNames;
 
 	private final List<StepResult> steps = new ArrayList<>();
 
@@ -72,10 +83,16 @@ public class ScenarioResult extends TestResult {
 	/** Possibly empty list of embedded items for the Scenario. */
 	private final List<EmbeddedItem> embeddedItems = new ArrayList<>();
 
+	/** The {@link #embeddedItems} keyed by file name, created when an item is first served. */
+	private transient Map<String, EmbeddedItem> embeddedItemsByName;
+
 	private FeatureResult parent;
 	
 	private transient AbstractBuild<?, ?> owner;
-	private transient String safeName;
+	private transient volatile String safeName;
+
+	/** The position of the scenario in the stored segment of its feature, or -1 if it was not loaded from one. */
+	private transient int segmentIndex = -1;
 
 	// true if this test failed
 	private transient boolean failed;
@@ -83,6 +100,9 @@ public class ScenarioResult extends TestResult {
 	
 	private transient float duration;
 
+	/** <code>false</code> if steps have been added since the last {@link #tally()}. */
+	private transient boolean tallied;
+
    /**
     * This test has been failing since this build number (not id.)
     *
@@ -94,6 +114,34 @@ public class ScenarioResult extends TestResult {
 	ScenarioResult(Scenario scenario, BackgroundResult backgroundResult) {
 		this.scenario = scenario;
 		this.backgroundResult = backgroundResult;
+		setScenario(scenario);
+	}
+
+
+	private void setScenario(Scenario scenario) {
+		scenarioName = scenario.getName();
+		scenarioId = scenario.getId();
+		List<Tag> tags = scenario.getTags();
+		if (tags == null || tags.isEmpty()) {
+			tagNames = Collections.emptyList();
+		}
+		else {
+			tagNames = new ArrayList<>(tags.size());
+			for (Tag tag : tags) {
+				tagNames.add(tag.getName());
+			}
+		}
+	}
+
+
+	/**
+	 * Convert a scenario that was stored before the name, id and tags were held directly.
+	 */
+	private Object readResolve() {
+		if (scenarioName == null && scenario != null) {
+			setScenario(scenario);
+		}
+		return this;
 	}
 
     private void writeObject(ObjectOutputStream out) throws IOException {
@@ -109,7 +157,7 @@ public class ScenarioResult extends TestResult {
 	@Override
 	@Exported(visibility=9)
 	public String getName() {
-		return scenario.getName();
+		return scenarioName;
 	}
 	
 	// XXX: getFullName was added in 1.594+
@@ -130,19 +178,40 @@ public class ScenarioResult extends TestResult {
 	}
 
 	@Override
-	public synchronized String getSafeName() {
-		if (safeName != null) {
-			return safeName;
-		}
-		String name = safe(scenario.getId());
-		String parentName = parent.getSafeName() + ';';
-		
-		if (name.startsWith(parentName)) {
-			name = name.replace(parentName, "");
+	public String getSafeName() {
+		String name = safeName;
+		if (name == null) {
+			parent.assignSafeNames();
+			name = safeName;
 		}
-		safeName = uniquifyName(parent.getChildren(), name);
+		return name;
+	}
+
+	/**
+	 * Set the safe name that was given to this scenario by its feature or stored with it.
+	 */
+	void setSafeName(String safeName) {
+		this.safeName = safeName;
+	}
+
+	/**
+	 * @return the safe name of this scenario if it has been given one, otherwise <code>null</code>.
+	 */
+	String getAssignedSafeName() {
 		return safeName;
 	}
+
+	/**
+	 * @param parentPrefix the safe name of the feature followed by <code>;</code>.
+	 * @return the safe name of this scenario before it is made unique amongst its siblings.
+	 */
+	String getBaseSafeName(String parentPrefix) {
+		String name = safe(scenarioId);
+		if (name.startsWith(parentPrefix)) {
+			name = name.replace(parentPrefix, "");
+		}
+		return name;
+	}
 	
 	@Override
 	public int getSkipCount() {
@@ -221,6 +290,7 @@ public class ScenarioResult extends TestResult {
 
 	void addAfterResult(BeforeAfterResult afterResult) {
 		afterResults.add(afterResult);
+		invalidateTally();
 	}
 
 
@@ -231,6 +301,7 @@ public class ScenarioResult extends TestResult {
 
 	void addBeforeResult(BeforeAfterResult beforeResult) {
 		beforeResults.add(beforeResult);
+		invalidateTally();
 	}
 
 
@@ -238,21 +309,107 @@ public class ScenarioResult extends TestResult {
 		return embeddedItems;
 	}
 
-	void addEmbeddedItem(EmbeddedItem item) {
+	synchronized void addEmbeddedItem(EmbeddedItem item) {
 		embeddedItems.add(item);
+		embeddedItemsByName = null;
+	}
+
+	/**
+	 * @param filename the name of the embedded file.
+	 * @return the embedded item with the given file name or <code>null</code> if there is none.
+	 */
+	synchronized EmbeddedItem getEmbeddedItem(String filename) {
+		if (embeddedItemsByName == null) {
+			Map<String, EmbeddedItem> byName = new HashMap<>();
+			for (EmbeddedItem item : embeddedItems) {
+				byName.put(item.getFilename(), item);
+			}
+			embeddedItemsByName = byName;
+		}
+		return embeddedItemsByName.get(filename);
+	}
+
+	/**
+	 * @param item an embedded item of this scenario.
+	 * @return the file that the item is stored in on the master.
+	 */
+	File getEmbeddedFile(EmbeddedItem item) {
+		if (item.getDigest() != null) {
+			return EmbedStore.of(getOwner().getParent()).getFile(item.getDigest());
+		}
+		// archived before the embedded items were stored once per job.
+		return new File(getOwner().getRootDir(), "behave/embed/" + getParent().getSafeName() + "/" + getSafeName() +
+		                "/" + item.getFilename());
 	}
 
 
 	void addStepResult(StepResult stepResult) {
 		steps.add(stepResult);
+		invalidateTally();
 	}
 
 	public Collection<StepResult> getStepResults() {
 		return steps;
 	}
 	
+	/**
+	 * @return the scenario, which is read back from the stored result if it has been released.
+	 */
 	public Scenario getScenario() {
-		return scenario;
+		ScenarioResult detailed = getDetailedResult();
+		return detailed == null ? null : detailed.scenario;
+	}
+
+
+	/**
+	 * @return the names of the tags of this scenario.
+	 */
+	List<String> getTagNames() {
+		return tagNames;
+	}
+
+
+	/**
+	 * Get this scenario with all of its gherkin details. If they have been released they are read back from the
+	 * stored result, in which case the returned copy only lives as long as the memory allows.
+	 * 
+	 * @return this scenario, a detailed copy of it, or <code>null</code> if the details could not be read.
+	 */
+	ScenarioResult getDetailedResult() {
+		if (scenario != null) {
+			return this;
+		}
+		return parent == null ? null : parent.getDetailedScenario(this);
+	}
+
+
+	int getSegmentIndex() {
+		return segmentIndex;
+	}
+
+
+	void setSegmentIndex(int segmentIndex) {
+		this.segmentIndex = segmentIndex;
+	}
+
+
+	/**
+	 * Release the gherkin details of this scenario which are only needed to render it.
+	 */
+	void releaseDetails() {
+		scenario = null;
+		if (backgroundResult != null) {
+			backgroundResult.releaseDetails();
+		}
+		for (BeforeAfterResult bar : beforeResults) {
+			bar.releaseDetails();
+		}
+		for (StepResult sr : steps) {
+			sr.releaseDetails();
+		}
+		for (BeforeAfterResult bar : afterResults) {
+			bar.releaseDetails();
+		}
 	}
 
 	@Override
@@ -269,16 +426,35 @@ public class ScenarioResult extends TestResult {
 			// treat pending as skipped (undefined are errors).
 			return Status.SKIPPED;
 		}
-		ScenarioResult psr = (ScenarioResult) getPreviousResult();
-		if (psr == null) {
-			return isPassed() ? Status.PASSED : Status.FAILED;
+		switch (getPreviousOutcome()) {
+			case PASSED:
+				return isPassed() ? Status.PASSED : Status.REGRESSION;
+			case FAILED:
+				return isPassed() ? Status.FIXED : Status.FAILED;
+			default:
+				return isPassed() ? Status.PASSED : Status.FAILED;
 		}
-		if (psr.isPassed()) {
-			return isPassed() ? Status.PASSED : Status.REGRESSION;
+	}
+
+
+	/**
+	 * Get the outcome of the previous run of this scenario from the {@link ScenarioHistory} of the job, only
+	 * loading the previous results if the history does not know it.
+	 */
+	private ScenarioHistory.Outcome getPreviousOutcome() {
+		AbstractBuild<?, ?> build = getOwner();
+		if (build != null) {
+			ScenarioHistory.Outcome outcome =
+			      ScenarioHistory.of(build.getParent()).getPreviousOutcome(ScenarioHistory.key(this), build.getNumber());
+			if (outcome != ScenarioHistory.Outcome.UNKNOWN) {
+				return outcome;
+			}
 		}
-		else {
-			return isPassed() ? Status.FIXED : Status.FAILED;
+		ScenarioResult psr = (ScenarioResult) getPreviousResult();
+		if (psr == null) {
+			return ScenarioHistory.Outcome.NONE;
 		}
+		return psr.isPassed() ? ScenarioHistory.Outcome.PASSED : ScenarioHistory.Outcome.FAILED;
 	}
 
 
@@ -292,6 +468,14 @@ public class ScenarioResult extends TestResult {
 		// If we haven't calculated failedSince yet, and we should,
 		// do it now.
 		if (failedSince == 0 && getFailCount() == 1) {
+			AbstractBuild<?, ?> build = getOwner();
+			if (build != null) {
+				this.failedSince =
+				      ScenarioHistory.of(build.getParent()).getFailedSince(ScenarioHistory.key(this), build.getNumber());
+			}
+			if (failedSince != 0) {
+				return failedSince;
+			}
 			ScenarioResult prev = (ScenarioResult) getPreviousResult();
 			if (prev != null && !prev.isPassed())
 				this.failedSince = prev.getFailedSince();
@@ -324,9 +508,49 @@ public class ScenarioResult extends TestResult {
 	}
 
 
+	/**
+	 * @return the failed since build number as it was last calculated, without calculating it.
+	 */
+	int getStoredFailedSince() {
+		return failedSince;
+	}
+
+
+	void setFailedSince(int failedSince) {
+		this.failedSince = failedSince;
+	}
+
+
+	/**
+	 * Set the outcome of the scenario as it was stored so that the steps do not need to be walked again by
+	 * {@link #tally()}.
+	 */
+	void setTally(boolean failed, boolean skipped, float duration) {
+		this.failed = failed;
+		this.skipped = skipped && !failed;
+		this.duration = duration;
+		this.tallied = true;
+	}
+
+
+	/**
+	 * Mark the tally of this scenario, and so that of its feature and result, as needing to be recomputed.
+	 */
+	void invalidateTally() {
+		tallied = false;
+		if (parent != null) {
+			parent.invalidateTally();
+		}
+	}
+
+
 	@Override
 	public void tally() {
+		if (tallied) {
+			return;
+		}
 		failed = false;
+		skipped = false;
 		duration = 0.0f;
 		for (StepResult sr : steps) {
 			duration += sr.getDuration();
@@ -370,6 +594,7 @@ public class ScenarioResult extends TestResult {
 		if (failed) {
 			skipped = false;
 		}
+		tallied = true;
 	}
 
 
@@ -386,23 +611,23 @@ public class ScenarioResult extends TestResult {
 			if(backgroundResult != null && !backgroundResult.isPassed()) {
 				for (StepResult step : backgroundResult.getStepResults()) {
 					if (!step.isPassed()) {
-						return BehaveUtils.listToString(step.getResult().getErrorMessage());
+						return step.getErrorMessage();
 					}
 				}
 			}
 			for (BeforeAfterResult before : getBeforeResults()) {
 				if (!before.isPassed()) {
-					return BehaveUtils.listToString(before.getResult().getErrorMessage());
+					return before.getErrorMessage();
 				}
 			}
 			for (StepResult step : getStepResults()) {
 				if (!step.isPassed()) {
-					return BehaveUtils.listToString(step.getResult().getErrorMessage());
+					return step.getErrorMessage();
 				}
 			}
 			for (BeforeAfterResult after : getAfterResults()) {
 				if (!after.isPassed()) {
-					return BehaveUtils.listToString(after.getResult().getErrorMessage());
+					return after.getErrorMessage();
 				}
 			}
 		}
@@ -411,7 +636,19 @@ public class ScenarioResult extends TestResult {
 
 
 	public String getSource() {
-		return ScenarioToHTML.getHTML(this); 
+		return ScenarioHTMLCache.getInstance().getHTML(this);
+	}
+
+
+	/**
+	 * Write the HTML of the scenario straight to the page, rather than building it as a {@link #getSource() String}
+	 * first.
+	 * 
+	 * @param output the output of the page.
+	 * @throws IOException if the HTML could not be written.
+	 */
+	public void writeSourceTo(XMLOutput output) throws IOException {
+		ScenarioHTMLCache.getInstance().write(this, output.asWriter());
 	}
 	
 	@Override
@@ -459,38 +696,11 @@ public class ScenarioResult extends TestResult {
 			return this;
 		}
 		else if (token.startsWith("embed")) {
-			// lets go fishing...
 			String rest = req.getRestOfPath();
 			if (rest.startsWith("/")) {
-				rest = rest.substring(1);
-				// there won't be many embedded items so don't map them just search...
-				// is there enough here to display the thing??
-				for (EmbeddedItem item : getEmbeddedItems()) {
-					if (item.getFilename().equals(rest)) {
-						File file = new File(getOwner().getRootDir(), "behave/embed/" + getParent().getSafeName() +
-								"/" +
-								getSafeName() + "/" + item.getFilename());
-                        FileInputStream fileInputStream = null;
-						try {
-							fileInputStream = new FileInputStream(file);
-							rsp.serveFile(req, fileInputStream, file.lastModified(), Long.MAX_VALUE, file.length(),
-									"mime-type:" + item.getMimetype());
-							return null;
-						} catch (IOException | ServletException ex) {
-							String msg = String.format("Failed to serve behave embedded file (%s) for in Feature " +
-											"(%s) for job (%s)",
-									item.getFilename(), this.getFullName(), this.getOwner().getFullDisplayName());
-							LOGGER.log(Level.WARNING, msg, ex);
-						} finally {
-                            if (fileInputStream != null)
-                                try {
-                                    fileInputStream.close();
-                                } catch (IOException e) {
-                                    LOGGER.log(Level.FINE, "Error closing input stream", e);
-                                }
-                        }
-						return null;
-					}
+				EmbeddedItem item = getEmbeddedItem(rest.substring(1));
+				if (item != null) {
+					return new EmbedServer(getEmbeddedFile(item), item.getMimetype(), item.getDigest());
 				}
 			}
 		}
@@ -28,16 +28,32 @@ import behave.gherkin.formatter.model.Comment;
 import behave.gherkin.formatter.model.DataTableRow;
 import behave.gherkin.formatter.model.DescribedStatement;
 import behave.gherkin.formatter.model.Match;
-import behave.gherkin.formatter.model.Result;
 import behave.gherkin.formatter.model.Step;
 import behave.gherkin.formatter.model.Tag;
 import behave.gherkin.formatter.model.TagStatement;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.List;
-import java.util.Locale;
 
 public class ScenarioToHTML {
 
+	/**
+	 * The version of the HTML that is rendered, which must be changed whenever the HTML changes so that the pages
+	 * in the {@link ScenarioHTMLCache} are rendered again.
+	 */
+	static final int VERSION = 1;
+
+	/** The zero padded line numbers that nearly every feature file fits in to. */
+	private static final String[] LINE_NUMBERS = new String[1000];
+
+	static {
+		for (int i = 0; i < LINE_NUMBERS.length; i++) {
+			LINE_NUMBERS[i] = i < 10 ? "00" + i : i < 100 ? "0" + i : Integer.toString(i);
+		}
+	}
+
 	private enum RESULT_TYPE {
 
 		/** Step failed as it was not defined */
@@ -61,8 +77,11 @@ public class ScenarioToHTML {
 		}
 
 
-		public static RESULT_TYPE typeFromResult(Result r) {
-			return RESULT_TYPE.valueOf(r.getStatus().toUpperCase(Locale.UK));
+		public static RESULT_TYPE typeFromStatus(StepStatus status) {
+			if (status == null || status == StepStatus.UNKNOWN) {
+				return NO_RESULT;
+			}
+			return RESULT_TYPE.valueOf(status.name());
 		}
 	}
 
@@ -70,6 +89,9 @@ public class ScenarioToHTML {
 
 	private final ScenarioResult scenarioResult;
 
+	/** Where the HTML is written to whilst rendering. */
+	private Writer out;
+
 
 	public ScenarioToHTML(ScenarioResult scenarioResult) {
 		this.scenarioResult = scenarioResult;
@@ -81,6 +103,19 @@ public class ScenarioToHTML {
 	}
 
 
+	/**
+	 * Write the HTML of a scenario to a writer as it is rendered.
+	 * 
+	 * @param scenarioResult the scenario.
+	 * @param out the writer.
+	 * @throws IOException if the HTML could not be written.
+	 * @see #write(Writer)
+	 */
+	public static void write(ScenarioResult scenarioResult, Writer out) throws IOException {
+		new ScenarioToHTML(scenarioResult).write(out);
+	}
+
+
 	/**
 	 * Builds a Gherkin file from the results of the parsing and formats it for HTML. XXX this should be moved
 	 * elsewhere!
@@ -88,156 +123,236 @@ public class ScenarioToHTML {
 	 */
 	public String getHTML() {
 		// we will be pretty big so start of large to avoild re-allocation.
-		StringBuilder sb = new StringBuilder(20 * 1024);
+		StringWriter sw = new StringWriter(20 * 1024);
+		try {
+			write(sw);
+		}
+		catch (IOException ex) {
+			// a StringWriter does not throw.
+			throw new IllegalStateException(ex);
+		}
+		return sw.toString();
+	}
+
 
-		sb.append("<table border=\"0\" cellpadding=\"3\" cellspacing=\"0\" bgcolor=\"#ffffff\">\n");
-		sb.append("<tbody>\n");
+	/**
+	 * Writes the same HTML as {@link #getHTML()} without building it in memory first, so that a scenario with
+	 * large tables or long stack traces can be sent straight to the response.
+	 * 
+	 * @param out the writer to write to, which is not closed.
+	 * @throws IOException if the HTML could not be written.
+	 */
+	public void write(Writer out) throws IOException {
+		this.out = out;
+		indent = 0;
+		// the gherkin details may have been released once the result was stored.
+		ScenarioResult detailed = scenarioResult.getDetailedResult();
+		if (detailed == null) {
+			out.write("<p>The details of this scenario could not be loaded.</p>");
+			return;
+		}
+
+		out.write("<table border=\"0\" cellpadding=\"3\" cellspacing=\"0\" bgcolor=\"#ffffff\">\n");
+		out.write("<tbody>\n");
 		// being gherkin output...
 
-		addTagStatement(sb, scenarioResult.getParent().getFeature());
+		addTagStatement(scenarioResult.getParent().getFeature());
 
-		for (BeforeAfterResult before : scenarioResult.getBeforeResults()) {
-			addBeforeAfterResult(sb, "before", before);
+		for (BeforeAfterResult before : detailed.getBeforeResults()) {
+			addBeforeAfterResult("before", before);
 		}
-		addBackgroundResult(sb, scenarioResult.getBackgroundResult());
+		addBackgroundResult(detailed.getBackgroundResult());
 
-		addTagStatement(sb, scenarioResult.getScenario());
+		addTagStatement(detailed.getScenario());
 
-		for (StepResult stepResult : scenarioResult.getStepResults()) {
-			addStepResult(sb, stepResult);
+		for (StepResult stepResult : detailed.getStepResults()) {
+			addStepResult(stepResult);
 		}
-		for (BeforeAfterResult after : scenarioResult.getAfterResults()) {
-			addBeforeAfterResult(sb, "after", after);
+		for (BeforeAfterResult after : detailed.getAfterResults()) {
+			addBeforeAfterResult("after", after);
 		}
 		// end gherkin output...
-		sb.append("</tbody></table>");
+		out.write("</tbody></table>");
 		List<EmbeddedItem> embeddedItems = scenarioResult.getEmbeddedItems();
 		if (!embeddedItems.isEmpty()) {
-			sb.append("<h2>Embedded Items</h2>\n");
-			sb.append("<ul>");
+			out.write("<h2>Embedded Items</h2>\n");
+			out.write("<ul>");
 			for (EmbeddedItem embeddedItem : embeddedItems) {
-				addEmbeddedItem(sb, embeddedItem);
+				addEmbeddedItem(embeddedItem);
 			}
-			sb.append("</ul>");
+			out.write("</ul>");
 		}
-		return sb.toString();
 	}
 
-	private StringBuilder addEmbeddedItem(StringBuilder stringBuilder, EmbeddedItem embeddedItem) {
-		stringBuilder.append("<li>");
-		stringBuilder.append("<a href=\"./embed/").append(embeddedItem.getFilename()).append("\">");
-		stringBuilder.append(embeddedItem.getFilename());
-		stringBuilder.append("</a> of type ");
-		stringBuilder.append(embeddedItem.getMimetype());
-		stringBuilder.append("</li>\n");
-		return stringBuilder;
+
+	/**
+	 * Write a value as {@link StringBuilder#append(Object)} would, so that a missing value reads as it always has.
+	 */
+	private void append(Object value) throws IOException {
+		out.write(String.valueOf(value));
 	}
 
-	private StringBuilder addTagStatement(StringBuilder sb, TagStatement tagStatement) {
+
+	private void addEmbeddedItem(EmbeddedItem embeddedItem) throws IOException {
+		out.write("<li>");
+		out.write("<a href=\"./embed/");
+		append(embeddedItem.getFilename());
+		out.write("\">");
+		append(embeddedItem.getFilename());
+		out.write("</a> of type ");
+		append(embeddedItem.getMimetype());
+		out.write("</li>\n");
+	}
+
+
+	private void addTagStatement(TagStatement tagStatement) throws IOException {
 		for (Comment comment : tagStatement.getComments()) {
-			addComment(sb, comment);
+			addComment(comment);
 		}
 		for (Tag tag : tagStatement.getTags()) {
-			createLine(sb, tag.getLine(), RESULT_TYPE.NO_RESULT);
-			sb.append(tag.getName());
+			createLine(tag.getLine(), RESULT_TYPE.NO_RESULT);
+			append(tag.getName());
 		}
-		createLine(sb, tagStatement.getLine(), RESULT_TYPE.NO_RESULT);
-		appendKeyword(sb, tagStatement.getKeyword()).append(' ').append(tagStatement.getName());
+		createLine(tagStatement.getLine(), RESULT_TYPE.NO_RESULT);
+		appendKeyword(tagStatement.getKeyword());
+		out.write(' ');
+		append(tagStatement.getName());
 		String descr = tagStatement.getDescription();
 		indent++;
 		if (descr != null && !descr.isEmpty()) {
-			// may have been run on windows?
-			descr = descr.replace("\r\n", "\n");
-			String[] lines = descr.split("\\n");
-			for (int i=0; i < lines.length; i++){
-				endLine(sb);
-				createLine(sb, tagStatement.getLine() + i+1, RESULT_TYPE.NO_RESULT);
-				sb.append("<span style=\"font-style:italic\">");
-				sb.append(lines[i]);
-				sb.append("</span>");
+			// trailing blank lines are not shown.
+			int end = descr.length();
+			while (end > 0 && descr.charAt(end - 1) == '\n') {
+				end--;
+				// may have been run on windows?
+				if (end > 0 && descr.charAt(end - 1) == '\r') {
+					end--;
+				}
+			}
+			int start = 0;
+			for (int i = 0; start < end; i++) {
+				int nl = descr.indexOf('\n', start);
+				if (nl == -1 || nl > end) {
+					nl = end;
+				}
+				int lineEnd = nl < end && nl > start && descr.charAt(nl - 1) == '\r' ? nl - 1 : nl;
+				endLine();
+				createLine(tagStatement.getLine() + i + 1, RESULT_TYPE.NO_RESULT);
+				out.write("<span style=\"font-style:italic\">");
+				out.write(descr, start, lineEnd - start);
+				out.write("</span>");
+				start = nl + 1;
 			}
 		}
-		endLine(sb);
-		return sb;
+		endLine();
 	}
 
-	public StringBuilder addDescribedStatement(StringBuilder sb, DescribedStatement ds) {
+
+	private void addDescribedStatement(DescribedStatement ds) throws IOException {
 		for (Comment comment : ds.getComments()) {
-			addComment(sb, comment);
+			addComment(comment);
 		}
-		createLine(sb, ds.getLine(), RESULT_TYPE.NO_RESULT);
-		appendKeyword(sb, ds.getKeyword());
-		sb.append(' ');
-		sb.append(ds.getName());
-		endLine(sb);
-		return sb;
+		createLine(ds.getLine(), RESULT_TYPE.NO_RESULT);
+		appendKeyword(ds.getKeyword());
+		out.write(' ');
+		append(ds.getName());
+		endLine();
 	}
-	
-	
-	private StringBuilder createLine(StringBuilder sb, Integer line, RESULT_TYPE type) {
-		String lineStr = String.format("%03d", line);
-		return createLine(sb, lineStr, type);
+
+
+	private void createLine(Integer line, RESULT_TYPE type) throws IOException {
+		createLine(lineNumber(line), type);
+	}
+
+
+	/**
+	 * @return the line number padded to three digits.
+	 */
+	static String lineNumber(Integer line) {
+		if (line == null) {
+			return "null";
+		}
+		if (line >= 0 && line < LINE_NUMBERS.length) {
+			return LINE_NUMBERS[line];
+		}
+		// only negative numbers need padding past the table.
+		return line > 0 ? line.toString() : String.format("%03d", line);
 	}
 
 
-	private StringBuilder createLine(StringBuilder sb, String str, RESULT_TYPE type) {
-		sb.append("\n<tr><td valign=\"top\" align=\"right\"><a style=\"color:#808080\" name=\"").append(str).append("\">");
-		sb.append(str);
-		sb.append("</a></td>");
-		sb.append("<td nowrap=\"nowrap\" valign=\"top\" align=\"left\" style=\"").append(type.css).append("\">");
-		sb.append("<div style=\"padding-left: ").append(indent).append("em;");
-		sb.append(type.css);
-		sb.append("\">");
-		return sb;
+	private void createLine(String str, RESULT_TYPE type) throws IOException {
+		out.write("\n<tr><td valign=\"top\" align=\"right\"><a style=\"color:#808080\" name=\"");
+		out.write(str);
+		out.write("\">");
+		out.write(str);
+		out.write("</a></td>");
+		out.write("<td nowrap=\"nowrap\" valign=\"top\" align=\"left\" style=\"");
+		out.write(type.css);
+		out.write("\">");
+		out.write("<div style=\"padding-left: ");
+		out.write(Integer.toString(indent));
+		out.write("em;");
+		out.write(type.css);
+		out.write("\">");
 	}
 
 
-	private StringBuilder endLine(StringBuilder sb) {
-		return sb.append("</div></td>");
+	private void endLine() throws IOException {
+		out.write("</div></td>");
 	}
 
 
-	public StringBuilder addComment(StringBuilder sb, Comment comment) {
-		createLine(sb, comment.getLine(), RESULT_TYPE.NO_RESULT);
-		sb.append("<span style=\"font-style:italic; color: #666666\">");
-		sb.append(comment.getValue());
-		sb.append("</span>");
+	private void addComment(Comment comment) throws IOException {
+		createLine(comment.getLine(), RESULT_TYPE.NO_RESULT);
+		out.write("<span style=\"font-style:italic; color: #666666\">");
+		append(comment.getValue());
+		out.write("</span>");
 
-		endLine(sb);
-		return sb;
+		endLine();
 	}
 
 
-	public StringBuilder appendKeyword(StringBuilder sb, String keyword) {
-		sb.append("<span style=\"font-weight: bold; color: ##4D0080\">").append(keyword).append("</span>");
-		return sb;
+	private void appendKeyword(String keyword) throws IOException {
+		out.write("<span style=\"font-weight: bold; color: ##4D0080\">");
+		append(keyword);
+		out.write("</span>");
 	}
 
 
-	public StringBuilder addBeforeAfterResult(StringBuilder sb,
-	                                          String beforeOrAfter,
-	                                          BeforeAfterResult beforeAfter) {
+	private void addBeforeAfterResult(String beforeOrAfter, BeforeAfterResult beforeAfter) throws IOException {
 		Match m = beforeAfter.getMatch();
-		Result r = beforeAfter.getResult();
-		createLine(sb, beforeOrAfter, RESULT_TYPE.typeFromResult(r));
-		sb.append(m.getLocation()).append(' ');
-		addFailure(sb, r);
+		createLine(beforeOrAfter, RESULT_TYPE.typeFromStatus(beforeAfter.getStatus()));
+		append(m.getLocation());
+		out.write(' ');
+		addFailure(beforeAfter.getStatus(), beforeAfter.getErrorMessage());
 		// XXX add argument formatting
 		//List<Argument> args = m.getArguments();
-		endLine(sb);
-		return sb;
+		endLine();
 	}
 
 
-	public StringBuilder addFailure(StringBuilder sb, Result result) {
-		if (Result.FAILED.equals(result.getStatus())) {
-			createLine(sb, "Failure", RESULT_TYPE.FAILED);
-			String[] stack = BehaveUtils.listToString(result.getErrorMessage()).split("\n");
-
-			sb.append(stack[0]).append("<br>");
-			for (int i = 1; i < stack.length; i++) {
-				sb.append(stack[i].replaceAll("\t", "&nbsp;&nbsp;"));
-				sb.append("<br>");
+	private void addFailure(StepStatus status, String errorMessage) throws IOException {
+		if (status == StepStatus.FAILED) {
+			createLine("Failure", RESULT_TYPE.FAILED);
+			String stack = errorMessage == null ? "" : errorMessage;
+			// trailing blank lines are not shown.
+			int end = stack.length();
+			while (end > 0 && stack.charAt(end - 1) == '\n') {
+				end--;
+			}
+			int nl = stack.indexOf('\n');
+			if (nl == -1 || nl > end) {
+				nl = end;
+			}
+			out.write(stack, 0, nl);
+			out.write("<br>");
+			for (int start = nl + 1; start <= end; start = nl + 1) {
+				nl = stack.indexOf('\n', start);
+				if (nl == -1 || nl > end) {
+					nl = end;
+				}
+				writeIndented(stack, start, nl);
+				out.write("<br>");
 			}
 			// Error is always null (only non null when invoked direct as part of the test).
 			/*
@@ -245,42 +360,56 @@ public class ScenarioToHTML {
 			 * for (StackTraceElement ste : stack) { sb.append(ste.toString()).append("<br>"); } }
 			 */
 		}
-		else if ("undefined".equals(result.getStatus())) {
-			createLine(sb, "Undefined", RESULT_TYPE.UNDEFINED);
-			sb.append("Step is undefined");
+		else if (status == StepStatus.UNDEFINED) {
+			createLine("Undefined", RESULT_TYPE.UNDEFINED);
+			out.write("Step is undefined");
 			// We have no error message.
 		}
-		endLine(sb);
-		return sb;
+		endLine();
+	}
+
+
+	/**
+	 * Write a line of a stack trace with each tab replaced by two spaces that are not collapsed.
+	 */
+	private void writeIndented(String s, int start, int end) throws IOException {
+		int from = start;
+		for (int i = start; i < end; i++) {
+			if (s.charAt(i) == '\t') {
+				out.write(s, from, i - from);
+				out.write("&nbsp;&nbsp;");
+				from = i + 1;
+			}
+		}
+		out.write(s, from, end - from);
 	}
 
 
-	public StringBuilder addBackgroundResult(StringBuilder sb, BackgroundResult backgroundResult) {
+	private void addBackgroundResult(BackgroundResult backgroundResult) throws IOException {
 		if (backgroundResult != null) {
 			Background background = backgroundResult.getBackground();
-			addDescribedStatement(sb, background);
+			addDescribedStatement(background);
 			for (StepResult step : backgroundResult.getStepResults()) {
-				addStepResult(sb, step);
+				addStepResult(step);
 			}
 		}
-		return sb;
 	}
 
 
-	public StringBuilder addStepResult(StringBuilder sb, StepResult stepResult) {
+	private void addStepResult(StepResult stepResult) throws IOException {
 		Step step = stepResult.getStep();
 		{
 			List<Comment> comments = step.getComments();
 			if (comments != null) {
 				for (Comment c : comments) {
-					addComment(sb, c);
+					addComment(c);
 				}
 			}
 		}
-		createLine(sb, step.getLine(), RESULT_TYPE.typeFromResult(stepResult.getResult()));
-		appendKeyword(sb, step.getKeyword());
-		sb.append(' ');
-		sb.append(step.getName());
+		createLine(step.getLine(), RESULT_TYPE.typeFromStatus(stepResult.getStatus()));
+		appendKeyword(step.getKeyword());
+		out.write(' ');
+		append(step.getName());
 		if (step.getRows() != null) {
 			indent++;
 
@@ -289,39 +418,42 @@ public class ScenarioToHTML {
 				List<Comment> comments = dtr.getComments();
 				if (comments != null) {
 					for (Comment comment : comments) {
-						addComment(sb, comment);
+						addComment(comment);
 					}
 				}
-				createLine(sb, dtr.getLine(), RESULT_TYPE.NO_RESULT);
-				int colwidth = 100 / (dtr.getCells().size());
+				createLine(dtr.getLine(), RESULT_TYPE.NO_RESULT);
+				String colwidth = Integer.toString(100 / (dtr.getCells().size()));
 				// these span multiple lines and divs don't wrap if the argument is too long
 				// so use a table per row with the same sizes for each column. ugly but works...
 				// having a large colspan would be nice but then we need to compute all the possibilities up
 				// front.
-				sb.append("<table width=\"80%\">");
-				sb.append("<tr>");
+				out.write("<table width=\"80%\">");
+				out.write("<tr>");
 				for (String cell : dtr.getCells()) {
 					if (firstRow) {
-						sb.append("<th width=\"").append(colwidth).append("%\">");
-						sb.append(cell);
-						sb.append("</th>");
+						out.write("<th width=\"");
+						out.write(colwidth);
+						out.write("%\">");
+						append(cell);
+						out.write("</th>");
 						continue;
 					}
-					sb.append("<td width=\"").append(colwidth).append("%\">");
-					sb.append(cell);
-					sb.append("</td>");
+					out.write("<td width=\"");
+					out.write(colwidth);
+					out.write("%\">");
+					append(cell);
+					out.write("</td>");
 				}
-				sb.append("</tr></table>");
+				out.write("</tr></table>");
 
 				firstRow = false;
-				endLine(sb);
+				endLine();
 			}
 			indent--;
 		}
-		endLine(sb);
+		endLine();
 		// TODO add support for table rows...
-		addFailure(sb, stepResult.getResult());
-		return sb;
+		addFailure(stepResult.getStatus(), stepResult.getErrorMessage());
 	}
 
 }
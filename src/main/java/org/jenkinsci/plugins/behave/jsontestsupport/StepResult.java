@@ -29,25 +29,82 @@ import behave.gherkin.formatter.model.Step;
 import hudson.model.AbstractBuild;
 import hudson.tasks.test.TestResult;
 
+import java.util.Collections;
+
 /**
  * Represents a Step belonging to a Scenario from Cucumber.
+ * <p>
+ * Only the status, duration and error of the step are always held. The {@link Step} and {@link Match} are released
+ * once the result has been stored and are read back through {@link ScenarioResult#getDetailedResult()} when the
+ * scenario is rendered.
  * 
  * @author James Nord
  */
 public class StepResult extends TestResult {
 	private static final long serialVersionUID = 1L;
-	private final Step step;
-	private final Match match;
-	private final Result result;
+	private Step step;
+	private Match match;
+
+	/** Possibly <code>null</code> if behave did not report a result. */
+	private StepStatus status;
+	/** The status as it appears in the report when it is {@link StepStatus#UNKNOWN}, otherwise <code>null</code>. */
+	private String unknownStatus;
+	/** duration in nanoseconds. */
+	private long duration;
+	/** The error of a step that did not pass, otherwise <code>null</code>. */
+	private String errorMessage;
+
+	/** @deprecated only present to read results that were stored before the status was held directly. */
+	@Deprecated
+	private Result result;
 
 	private ScenarioResult parent;
 	private transient AbstractBuild<?, ?> owner;
 
 
 	StepResult(Step step, Match match, Result result) {
+		this(step, match, result, null);
+	}
+
+
+	/**
+	 * @param pool the pool of the parse or load to share the error message through, or <code>null</code>.
+	 */
+	StepResult(Step step, Match match, Result result, StringPool pool) {
 		this.step = step;
 		this.match = match;
-		this.result = result;
+		setResult(result, pool);
+	}
+
+
+	private void setResult(Result result, StringPool pool) {
+		if (result == null) {
+			return;
+		}
+		status = StepStatus.fromString(result.getStatus());
+		if (status == StepStatus.UNKNOWN) {
+			// keep the text so that the status is stored as behave reported it.
+			unknownStatus = pool == null ? result.getStatus() : pool.intern(result.getStatus());
+		}
+		Long l = result.getDuration();
+		duration = l == null ? 0 : l.longValue();
+		if (status != StepStatus.PASSED && result.getErrorMessage() != null) {
+			// the steps of an outline fail with the same traceback for every example.
+			String joined = BehaveUtils.listToString(result.getErrorMessage());
+			errorMessage = pool == null ? joined : pool.intern(joined);
+		}
+	}
+
+
+	/**
+	 * Convert a step that was stored with its full {@link Result}.
+	 */
+	private Object readResolve() {
+		if (result != null) {
+			setResult(result, null);
+			result = null;
+		}
+		return this;
 	}
 
 
@@ -88,7 +145,8 @@ public class StepResult extends TestResult {
 
 	@Override
 	public float getDuration() {
-		return BehaveUtils.durationFromResult(result);
+		// internally this is in nanosecodes
+		return duration / 1000000000.0f;
 	}
 
 
@@ -98,7 +156,7 @@ public class StepResult extends TestResult {
 	 */
     @Override
 	public int getPassCount() {
-		return BehaveUtils.PASSED_TEST_STRING.equals(result.getStatus()) ? 1 : 0;
+		return status == StepStatus.PASSED ? 1 : 0;
 	}
 
 
@@ -108,11 +166,7 @@ public class StepResult extends TestResult {
 	 */
     @Override
 	public int getFailCount() {
-		if (BehaveUtils.FAILED_TEST_STRING.equals(result.getStatus())
-			    || BehaveUtils.UNDEFINED_TEST_STRING.equals(result.getStatus())) {
-			return 1;
-		}
-		return 0;
+		return status != null && status.isFailure() ? 1 : 0;
 	}
 
 
@@ -122,25 +176,60 @@ public class StepResult extends TestResult {
 	 */
     @Override
 	public int getSkipCount() {
-		if (BehaveUtils.SKIPPED_TEST_STRING.equals(result.getStatus())
-		    || BehaveUtils.PENDING_TEST_STRING.equals(result.getStatus())) {
-			return 1;
-		}
-		return 0;
+		return status != null && status.isSkip() ? 1 : 0;
 	}
 
 
+	/**
+	 * @return the step, or <code>null</code> if it has been released.
+	 */
 	Step getStep() {
 		return step;
 	}
 
 
+	/**
+	 * @return the match, or <code>null</code> if it has been released or there was no match.
+	 */
 	Match getMatch() {
 		return match;
 	}
 
 
+	/**
+	 * @return the status of the step, possibly <code>null</code>.
+	 */
+	StepStatus getStatus() {
+		return status;
+	}
+
+
+	/**
+	 * @return the error of a step that did not pass, possibly <code>null</code>.
+	 */
+	String getErrorMessage() {
+		return errorMessage;
+	}
+
+
+	/**
+	 * Recreate the result of the step for storing it.
+	 */
 	Result getResult() {
-		return result;
+		if (status == null) {
+			return null;
+		}
+		String s = status == StepStatus.UNKNOWN && unknownStatus != null ? unknownStatus : status.toString();
+		return new Result(s, Long.valueOf(duration),
+		                  errorMessage == null ? null : Collections.singletonList(errorMessage));
+	}
+
+
+	/**
+	 * Release the gherkin details of this step which are only needed to render it.
+	 */
+	void releaseDetails() {
+		step = null;
+		match = null;
 	}
 }
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.Locale;
+
+/**
+ * The status of a step, or of the code run before or after a scenario, as reported by behave.
+ * 
+ * @author James Nord
+ */
+enum StepStatus {
+
+	PASSED,
+	FAILED,
+	SKIPPED,
+	UNDEFINED,
+	PENDING,
+	/** a status that this plugin does not know about. */
+	UNKNOWN;
+
+
+	/**
+	 * @param status the status as it appears in the report, may be <code>null</code>.
+	 * @return the matching status, or <code>null</code> if <code>status</code> was <code>null</code>.
+	 */
+	static StepStatus fromString(String status) {
+		if (status == null) {
+			return null;
+		}
+		switch (status) {
+			case BehaveUtils.PASSED_TEST_STRING:
+				return PASSED;
+			case BehaveUtils.FAILED_TEST_STRING:
+				return FAILED;
+			case BehaveUtils.SKIPPED_TEST_STRING:
+				return SKIPPED;
+			case BehaveUtils.UNDEFINED_TEST_STRING:
+				return UNDEFINED;
+			case BehaveUtils.PENDING_TEST_STRING:
+				return PENDING;
+			default:
+				return UNKNOWN;
+		}
+	}
+
+
+	/** Undefined steps are errors. */
+	boolean isFailure() {
+		return this == FAILED || this == UNDEFINED;
+	}
+
+
+	/** Pending steps are treated as skipped. */
+	boolean isSkip() {
+		return this == SKIPPED || this == PENDING;
+	}
+
+
+	/**
+	 * @return the status as it appears in the report.
+	 */
+	@Override
+	public String toString() {
+		return name().toLowerCase(Locale.ENGLISH);
+	}
+}
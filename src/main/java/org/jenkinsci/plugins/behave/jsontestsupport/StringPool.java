@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Deduplicates the strings of a result so that text that is repeated throughout a suite, such as the steps of a
+ * scenario outline, tag names and step locations, is only held once.
+ * <p>
+ * Unlike {@link String#intern()} the pool only lives as long as the parse or load that uses it, and it does not
+ * keep strings alive that are no longer used by the result, such as those of released gherkin details.
+ * <p>
+ * The pool is shared by the threads of a parallel parse, so it is backed by a concurrent map rather than a lock.
+ * 
+ * @author James Nord
+ */
+final class StringPool {
+
+	private final Interner<String> strings = Interners.newWeakInterner();
+
+	private final AtomicLong savedBytes = new AtomicLong();
+	private final AtomicInteger duplicates = new AtomicInteger();
+
+
+	/**
+	 * @param s the string to deduplicate, may be <code>null</code>.
+	 * @return the pooled instance of the string.
+	 */
+	String intern(String s) {
+		if (s == null) {
+			return null;
+		}
+		String pooled = strings.intern(s);
+		if (pooled != s) {
+			duplicates.incrementAndGet();
+			// object header, fields and the character array of the duplicate.
+			savedBytes.addAndGet(40 + 2 * s.length());
+		}
+		return pooled;
+	}
+
+
+	/**
+	 * @param list the strings to deduplicate, may be <code>null</code>.
+	 * @return a list of the pooled instances.
+	 */
+	List<String> intern(List<String> list) {
+		if (list == null) {
+			return null;
+		}
+		List<String> pooled = new ArrayList<>(list.size());
+		for (String s : list) {
+			pooled.add(intern(s));
+		}
+		return pooled;
+	}
+
+
+	/**
+	 * @return the estimated number of bytes of heap saved by the pool.
+	 */
+	long getSavedBytes() {
+		return savedBytes.get();
+	}
+
+
+	/**
+	 * @return the number of duplicate strings that have been replaced.
+	 */
+	int getDuplicates() {
+		return duplicates.get();
+	}
+}
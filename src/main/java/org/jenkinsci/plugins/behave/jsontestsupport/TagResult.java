@@ -52,6 +52,10 @@ public class TagResult extends MetaTabulatedResult {
 	private final Set<ScenarioResult> scenarioResults = new HashSet<>();
 	private transient List<ScenarioResult> failedScenarioResults;
 
+	/** The tables of the scenarios and the failed scenarios, created when they are first shown. */
+	private transient volatile ResultTable childTable;
+	private transient volatile ResultTable failedTable;
+
 	private final String tagName;
 
 	private int passCount;
@@ -61,6 +65,12 @@ public class TagResult extends MetaTabulatedResult {
 
 	private BehaveTestResult parent;
 
+	/**
+	 * The scenarios of a stored tag as pairs of the index of the feature and the index of the scenario in the
+	 * feature, or <code>null</code> once they have been loaded.
+	 */
+	private transient int[] scenarioRefs;
+
 
 	TagResult(String tagName) {
 		this.tagName = tagName;
@@ -79,13 +89,46 @@ public class TagResult extends MetaTabulatedResult {
 	}
 
 
+	/**
+	 * Set the stored counts of the tag, whose scenarios will be loaded the first time they are needed.
+	 */
+	void setStored(int[] scenarioRefs, int passCount, int failCount, int skipCount, float duration) {
+		this.scenarioRefs = scenarioRefs;
+		this.passCount = passCount;
+		this.failCount = failCount;
+		this.skipCount = skipCount;
+		this.duration = duration;
+	}
+
+
+	/**
+	 * Load the scenarios of a stored tag if they have not been loaded already.
+	 */
+	private synchronized void loadScenarios() {
+		if (scenarioRefs == null) {
+			return;
+		}
+		int[] refs = scenarioRefs;
+		scenarioRefs = null;
+		for (int i = 0; i + 1 < refs.length; i += 2) {
+			ScenarioResult sr = parent.getScenario(refs[i], refs[i + 1]);
+			if (sr != null) {
+				scenarioResults.add(sr);
+			}
+		}
+		tally();
+	}
+
+
 	@Override
 	public Collection<ScenarioResult> getChildren() {
+		loadScenarios();
 		return scenarioResults;
 	}
 
 
 	public Collection<ScenarioResult> getScenarioResults() {
+		loadScenarios();
 		return scenarioResults;
 	}
 
@@ -97,8 +140,8 @@ public class TagResult extends MetaTabulatedResult {
 
 
 	@Override
-	public boolean hasChildren() {
-		return !scenarioResults.isEmpty();
+	public synchronized boolean hasChildren() {
+		return scenarioRefs != null ? scenarioRefs.length != 0 : !scenarioResults.isEmpty();
 	}
 
 
@@ -133,10 +176,38 @@ public class TagResult extends MetaTabulatedResult {
 
 	@Override
 	public Collection<ScenarioResult> getFailedTests() {
+		loadScenarios();
 		return failedScenarioResults;
 	}
 
 
+	/**
+	 * @return the scenarios as a table that is shown a page at a time.
+	 */
+	public ResultTable getChildTable() {
+		// built outside of the lock of the tag, a table that is built twice is the same table.
+		ResultTable table = childTable;
+		if (table == null) {
+			table = new ResultTable(getChildren(), false);
+			childTable = table;
+		}
+		return table;
+	}
+
+
+	/**
+	 * @return the failed scenarios as a table that is shown a page at a time.
+	 */
+	public ResultTable getFailedTable() {
+		ResultTable table = failedTable;
+		if (table == null) {
+			table = new ResultTable(getFailedTests(), true);
+			failedTable = table;
+		}
+		return table;
+	}
+
+
 	public String getTagName() {
 		return tagName;
 	}
@@ -160,6 +231,12 @@ public class TagResult extends MetaTabulatedResult {
 
 	@Override
 	public void tally() {
+		if (scenarioRefs != null) {
+			// the stored counts are still valid and the rest will be computed when the scenarios are loaded.
+			return;
+		}
+		childTable = null;
+		failedTable = null;
 		if (failedScenarioResults == null) {
 			failedScenarioResults = new ArrayList<>();
 		}
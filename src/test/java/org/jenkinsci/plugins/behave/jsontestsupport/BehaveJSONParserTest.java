@@ -23,15 +23,22 @@
  */
 package org.jenkinsci.plugins.behave.jsontestsupport;
 
+import behave.gherkin.formatter.model.Result;
 import hudson.model.TaskListener;
 
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
@@ -40,6 +47,8 @@ import static org.junit.Assert.*;
 
 public class BehaveJSONParserTest {
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
 
 	//@Test
 	public void testParsing() throws Exception {
@@ -182,6 +191,151 @@ public class BehaveJSONParserTest {
                 "Start all SAS services across an environment");
     }
 
+    @Test
+    public void testBehaveSampleStreaming() throws Exception {
+        File f = getResourceAsFile("ScenarioResultTest/behave-sample.json");
+
+        List<File> files = new ArrayList<>();
+        files.add(f);
+
+        TaskListener mockListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+
+        BehaveTestResult expected = new BehaveJSONParser().parse(files, mockListener);
+        BehaveTestResult testresult = new BehaveJSONParser(false, true).parse(files, mockListener);
+
+        assertThat("Correct # of features", testresult.getFeatures(), hasSize(expected.getFeatures().size()));
+        assertThat("Correct # of passing tests", testresult.getPassCount(), is(expected.getPassCount()));
+        assertThat("Correct # of failing tests", testresult.getFailCount(), is(expected.getFailCount()));
+        assertThat("Correct # of skipped tests", testresult.getSkipCount(), is(expected.getSkipCount()));
+        assertThat("Duration is correct", testresult.getDuration(), is(expected.getDuration()));
+        assertEquals(testresult.getFeatures().iterator().next().getDisplayName(),
+                "Start all SAS services across an environment");
+    }
+
+    @Test
+    public void testParallelParsingKeepsFileOrder() throws Exception {
+        List<File> files = new ArrayList<>();
+        files.add(getResourceAsFile("ScenarioResultTest/behave-sample.json"));
+        files.add(getResourceAsFile("ScenarioResultTest/pending.json"));
+        files.add(getResourceAsFile("ScenarioResultTest/behave-embedded-item.json"));
+
+        TaskListener mockListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+
+        BehaveTestResult expected = new BehaveJSONParser().parse(files, mockListener);
+        BehaveJSONParser parser = new BehaveJSONParser();
+        parser.setParallelism(4);
+        BehaveTestResult testresult = parser.parse(files, mockListener);
+
+        assertThat("Correct # of features", testresult.getFeatures(), hasSize(expected.getFeatures().size()));
+        assertThat("Correct # of passing tests", testresult.getPassCount(), is(expected.getPassCount()));
+        assertThat("Correct # of failing tests", testresult.getFailCount(), is(expected.getFailCount()));
+        assertThat("Correct # of skipped tests", testresult.getSkipCount(), is(expected.getSkipCount()));
+        List<String> expectedNames = new ArrayList<>();
+        for (FeatureResult fr : expected.getFeatures()) {
+            expectedNames.add(fr.getSafeName());
+        }
+        List<String> names = new ArrayList<>();
+        for (FeatureResult fr : testresult.getFeatures()) {
+            names.add(fr.getSafeName());
+        }
+        assertEquals("Features are in file order", expectedNames, names);
+    }
+
+    @Test
+    public void testStepTextIsDeduplicated() throws Exception {
+        List<File> files = new ArrayList<>();
+        files.add(getResourceAsFile("ScenarioResultTest/behave-sample.json"));
+
+        TaskListener mockListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+
+        BehaveTestResult testresult = new BehaveJSONParser().parse(files, mockListener);
+        Map<String, String> keywords = new HashMap<>();
+        for (FeatureResult fr : testresult.getFeatures()) {
+            for (ScenarioResult sr : fr.getChildren()) {
+                for (StepResult step : sr.getStepResults()) {
+                    String keyword = step.getStep().getKeyword();
+                    if (!keywords.containsKey(keyword)) {
+                        keywords.put(keyword, keyword);
+                    }
+                    assertSame("Step keywords are shared", keywords.get(keyword), keyword);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testErrorMessagesAreDeduplicated() throws Exception {
+        StringPool pool = new StringPool();
+        StepResult first = new StepResult(null, null,
+                new Result(Result.FAILED, 1L, Collections.singletonList(new String("Traceback"))), pool);
+        BeforeAfterResult second = new BeforeAfterResult(null,
+                new Result(Result.FAILED, 1L, Collections.singletonList(new String("Traceback"))), pool);
+        assertSame("Error messages are shared", first.getErrorMessage(), second.getErrorMessage());
+    }
+
+    @Test
+    public void testStreamingDecodesEmbeddingsToFiles() throws Exception {
+        SyntheticBehaveReport report = new SyntheticBehaveReport().features(2).scenariosPerFeature(5)
+                .failureRatio(0.5).embeddingSize(200000);
+        List<File> files = new ArrayList<>();
+        files.add(report.write(tmp.newFile("report.json")));
+
+        TaskListener mockListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+
+        BehaveTestResult testresult = new BehaveJSONParser(false, true).parse(files, mockListener);
+        int embedded = 0;
+        for (FeatureResult fr : testresult.getFeatures()) {
+            for (ScenarioResult sr : fr.getChildren()) {
+                for (EmbeddedItem item : sr.getEmbeddedItems()) {
+                    File f = new File(System.getProperty("java.io.tmpdir"), item.getFilename());
+                    assertThat("Embedding is decoded", f.length(), is(200000L));
+                    assertThat("Embedding has a mime type", item.getMimetype(), is("image/png"));
+                    f.delete();
+                    embedded++;
+                }
+            }
+        }
+        assertThat("Every failed step has an embedding", embedded, is(report.getFailCount()));
+    }
+
+    @Test
+    public void testStreamingDropsEmbeddingsOverTheLimit() throws Exception {
+        SyntheticBehaveReport report = new SyntheticBehaveReport().features(1).scenariosPerFeature(4)
+                .failureRatio(1).embeddingSize(1000);
+        File f = report.write(tmp.newFile("report.json"));
+
+        BehaveTestResult testresult = new BehaveTestResult();
+        AtomicLong embeddedBytes = new AtomicLong();
+        BehaveJSONStreamParser parser = new BehaveJSONStreamParser(new GherkinCallback(testresult), null,
+                embeddedBytes);
+        // room for two embeddings in the build.
+        parser.setEmbeddingLimits(1000, 2500);
+        parser.parse(f);
+
+        int embedded = 0;
+        for (FeatureResult fr : testresult.getFeatures()) {
+            for (ScenarioResult sr : fr.getChildren()) {
+                embedded += sr.getEmbeddedItems().size();
+            }
+        }
+        assertThat("Embeddings over the build limit are dropped", embedded, is(2));
+        assertThat("Size of the kept embeddings", embeddedBytes.get(), is(2000L));
+
+        testresult = new BehaveTestResult();
+        parser = new BehaveJSONStreamParser(new GherkinCallback(testresult), null, new AtomicLong());
+        parser.setEmbeddingLimits(999, Long.MAX_VALUE);
+        parser.parse(f);
+        for (FeatureResult fr : testresult.getFeatures()) {
+            for (ScenarioResult sr : fr.getChildren()) {
+                assertThat("Embeddings over the limit are dropped", sr.getEmbeddedItems(), hasSize(0));
+            }
+        }
+    }
+
 	private static File getResourceAsFile(String resource) throws Exception {
 		URL url = BehaveJSONParserTest.class.getResource(resource);
 		Assert.assertNotNull("Resource " + resource + " could not be found", url);
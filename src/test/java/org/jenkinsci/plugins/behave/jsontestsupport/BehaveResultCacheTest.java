@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+public class BehaveResultCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsedResultIsEvicted() {
+		BehaveResultCache cache = new BehaveResultCache(250);
+		BehaveTestResult first = result(100);
+		BehaveTestResult second = result(100);
+		cache.put("1", first);
+		cache.put("2", second);
+		assertSame(first, cache.get("1"));
+
+		cache.put("3", result(100));
+
+		assertNull("least recently used result was evicted", cache.get("2"));
+		assertSame(first, cache.get("1"));
+		assertThat("size is within budget", cache.getSize(), is(200L));
+		assertThat(cache.getEvictionCount(), is(1L));
+		assertThat(cache.getHitCount(), is(2L));
+		assertThat(cache.getMissCount(), is(1L));
+	}
+
+	@Test
+	public void testResultIsReweighedWhenUsed() {
+		BehaveResultCache cache = new BehaveResultCache(250);
+		BehaveTestResult first = result(100);
+		cache.put("1", first);
+		cache.put("2", result(100));
+
+		// a feature of the first result has been loaded since it was cached.
+		first.addEstimatedSize(100);
+		assertSame(first, cache.get("1"));
+
+		assertNull(cache.get("2"));
+		assertThat(cache.getSize(), is(200L));
+	}
+
+	@Test
+	public void testResultBiggerThanTheBudgetIsKeptWhilstUsed() {
+		BehaveResultCache cache = new BehaveResultCache(50);
+		BehaveTestResult big = result(100);
+		cache.put("1", big);
+		assertSame(big, cache.get("1"));
+		assertThat(cache.getResultCount(), is(1));
+	}
+
+	private static BehaveTestResult result(long size) {
+		BehaveTestResult r = new BehaveTestResult();
+		r.addEstimatedSize(size);
+		return r;
+	}
+}
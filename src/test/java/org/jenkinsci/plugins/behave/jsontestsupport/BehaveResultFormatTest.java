@@ -0,0 +1,297 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import behave.gherkin.formatter.model.Result;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class BehaveResultFormatTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		BehaveTestResult actual = BehaveResultFormat.readSegments(dir);
+		actual.tally();
+
+		assertThat("Correct # of passing tests", actual.getPassCount(), is(expected.getPassCount()));
+		assertThat("Correct # of failing tests", actual.getFailCount(), is(expected.getFailCount()));
+		assertThat("Correct # of skipped tests", actual.getSkipCount(), is(expected.getSkipCount()));
+		assertThat("Duration is correct", actual.getDuration(), is(expected.getDuration()));
+		assertThat("Correct tags", actual.getTagMap().keySet(), is(expected.getTagMap().keySet()));
+
+		Iterator<FeatureResult> actualFeatures = actual.getFeatures().iterator();
+		for (FeatureResult expectedFeature : expected.getFeatures()) {
+			FeatureResult actualFeature = actualFeatures.next();
+			assertEquals(expectedFeature.getSafeName(), actualFeature.getSafeName());
+			assertEquals(expectedFeature.getURI(), actualFeature.getURI());
+			assertEquals(expectedFeature.getFeature().getDescription(), actualFeature.getFeature().getDescription());
+			Iterator<ScenarioResult> actualScenarios = actualFeature.getChildren().iterator();
+			for (ScenarioResult expectedScenario : expectedFeature.getChildren()) {
+				ScenarioResult actualScenario = actualScenarios.next();
+				assertEquals(expectedScenario.getSafeName(), actualScenario.getSafeName());
+				assertEquals(expectedScenario.getErrorDetails(), actualScenario.getErrorDetails());
+				assertEquals(ScenarioToHTML.getHTML(expectedScenario), ScenarioToHTML.getHTML(actualScenario));
+			}
+		}
+	}
+
+	@Test
+	public void testSegmentsLoadOnlyTheRequestedFeature() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		BehaveTestResult actual = BehaveResultFormat.readSegments(dir);
+		actual.tally();
+
+		assertThat("Correct # of passing tests", actual.getPassCount(), is(expected.getPassCount()));
+		assertThat("Correct # of failing tests", actual.getFailCount(), is(expected.getFailCount()));
+		assertThat("Correct # of skipped tests", actual.getSkipCount(), is(expected.getSkipCount()));
+		assertThat("Duration is correct", actual.getDuration(), is(expected.getDuration()));
+		for (FeatureResult fr : actual.getFeatures()) {
+			assertThat("Feature is not loaded", fr.isLoaded(), is(false));
+		}
+
+		FeatureResult expectedFeature = expected.getFeatures().iterator().next();
+		ScenarioResult expectedScenario = expectedFeature.getChildren().iterator().next();
+		String id = expectedFeature.getSafeName() + "/" + expectedScenario.getSafeName();
+		ScenarioResult actualScenario = (ScenarioResult) actual.findCorrespondingResult(actual.getId() + "/" + id);
+
+		assertEquals(ScenarioToHTML.getHTML(expectedScenario), ScenarioToHTML.getHTML(actualScenario));
+		Iterator<FeatureResult> features = actual.getFeatures().iterator();
+		assertThat("Requested feature is loaded", features.next().isLoaded(), is(true));
+		while (features.hasNext()) {
+			assertThat("Other features are not loaded", features.next().isLoaded(), is(false));
+		}
+		assertThat("Correct tags", actual.getTagMap().keySet(), is(expected.getTagMap().keySet()));
+	}
+
+	@Test
+	public void testLoadedScenariosReadTheirDetailsWhenRendered() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		BehaveTestResult actual = BehaveResultFormat.readSegments(dir);
+		actual.tally();
+
+		Iterator<FeatureResult> actualFeatures = actual.getFeatures().iterator();
+		for (FeatureResult expectedFeature : expected.getFeatures()) {
+			Iterator<ScenarioResult> actualScenarios = actualFeatures.next().getChildren().iterator();
+			for (ScenarioResult expectedScenario : expectedFeature.getChildren()) {
+				ScenarioResult actualScenario = actualScenarios.next();
+				for (StepResult step : actualScenario.getStepResults()) {
+					assertThat("Step details are released", step.getStep() == null, is(true));
+				}
+				assertEquals(expectedScenario.getName(), actualScenario.getName());
+				assertEquals(expectedScenario.getTagNames(), actualScenario.getTagNames());
+				assertEquals(expectedScenario.getErrorDetails(), actualScenario.getErrorDetails());
+				assertEquals(ScenarioToHTML.getHTML(expectedScenario), ScenarioToHTML.getHTML(actualScenario));
+				assertEquals(expectedScenario.getScenario().getDescription(),
+				             actualScenario.getScenario().getDescription());
+			}
+		}
+	}
+
+	@Test
+	public void testTallyRecomputesChangedScenarios() throws Exception {
+		BehaveTestResult result = SampleReports.parseSample();
+		int failCount = result.getFailCount();
+		ScenarioResult passed = null;
+		for (FeatureResult fr : result.getFeatures()) {
+			for (ScenarioResult sr : fr.getChildren()) {
+				if (passed == null && sr.isPassed()) {
+					passed = sr;
+				}
+			}
+		}
+		Assert.assertNotNull("A scenario passed", passed);
+
+		passed.addStepResult(new StepResult(null, null, new Result(Result.FAILED, 1L, null)));
+		result.tally();
+		assertThat("The changed scenario failed", passed.isPassed(), is(false));
+		assertThat("The failure is counted", result.getFailCount(), is(failCount + 1));
+		assertThat("The failure is listed", result.getFailedTests().contains(passed), is(true));
+	}
+
+	@Test
+	public void testUnknownStatusIsStoredAsReported() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+		ScenarioResult sr = expected.getFeatures().iterator().next().getChildren().iterator().next();
+		sr.addStepResult(new StepResult(null, null, new Result("blocked", 1L, null)));
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		FeatureResult actual = BehaveResultFormat.readSegment(BehaveResultFormat.getSegmentFile(dir, 0),
+		                                                      new StringPool());
+
+		List<StepResult> steps = new ArrayList<>(actual.getChildren().iterator().next().getStepResults());
+		StepResult step = steps.get(steps.size() - 1);
+		assertThat(step.getStatus(), is(StepStatus.UNKNOWN));
+		assertEquals("blocked", step.getResult().getStatus());
+	}
+
+	@Test
+	public void testStoredScenariosKeepTheirOutcome() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		BehaveTestResult actual = BehaveResultFormat.readSegments(dir);
+		actual.tally();
+
+		Iterator<FeatureResult> actualFeatures = actual.getFeatures().iterator();
+		for (FeatureResult expectedFeature : expected.getFeatures()) {
+			Iterator<ScenarioResult> actualScenarios = actualFeatures.next().getChildren().iterator();
+			for (ScenarioResult expectedScenario : expectedFeature.getChildren()) {
+				ScenarioResult actualScenario = actualScenarios.next();
+				assertThat(actualScenario.getFailCount(), is(expectedScenario.getFailCount()));
+				assertThat(actualScenario.getSkipCount(), is(expectedScenario.getSkipCount()));
+				assertThat(actualScenario.getDuration(), is(expectedScenario.getDuration()));
+			}
+		}
+	}
+
+	@Test
+	public void testIndexesAreStoredWithTheSegments() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		BehaveTestResult actual = BehaveResultFormat.readSegments(dir);
+		actual.tally();
+
+		assertThat("Correct tags", actual.getTagMap().keySet(), is(expected.getTagMap().keySet()));
+		for (TagResult expectedTag : expected.getTagMap().values()) {
+			TagResult actualTag = actual.getTagMap().get(expectedTag.getName());
+			assertThat("Correct # of passing tests", actualTag.getPassCount(), is(expectedTag.getPassCount()));
+			assertThat("Correct # of failing tests", actualTag.getFailCount(), is(expectedTag.getFailCount()));
+			assertThat("Correct # of skipped tests", actualTag.getSkipCount(), is(expectedTag.getSkipCount()));
+		}
+		for (FeatureResult fr : actual.getFeatures()) {
+			assertThat("The tags are read without loading the features", fr.isLoaded(), is(false));
+		}
+
+		List<String> expectedFailures = new ArrayList<>();
+		for (ScenarioResult sr : expected.getFailedTests()) {
+			expectedFailures.add(sr.getParent().getSafeName() + "/" + sr.getSafeName());
+		}
+		List<String> actualFailures = new ArrayList<>();
+		for (ScenarioResult sr : actual.getFailedTests()) {
+			actualFailures.add(sr.getParent().getSafeName() + "/" + sr.getSafeName());
+		}
+		assertEquals(expectedFailures, actualFailures);
+
+		for (TagResult expectedTag : expected.getTagMap().values()) {
+			TagResult actualTag = actual.getTagMap().get(expectedTag.getName());
+			assertThat("Correct # of scenarios", actualTag.getChildren().size(),
+			           is(expectedTag.getChildren().size()));
+			assertThat("Correct # of failing tests", actualTag.getFailCount(), is(expectedTag.getFailCount()));
+		}
+	}
+
+	@Test
+	public void testSummaryDoesNotLoadFeatures() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		File f = tmp.newFile("summary.bin");
+		BehaveResultFormat.writeSummary(BehaveResultSummary.of(expected), f);
+		BehaveResultSummary summary = BehaveResultFormat.readSummary(f);
+
+		List<String> failedIds = new ArrayList<>();
+		for (ScenarioResult sr : expected.getFailedTests()) {
+			failedIds.add(sr.getParent().getSafeName() + "/" + sr.getSafeName());
+		}
+		assertEquals(failedIds, summary.getFailedScenarioIds());
+		assertThat("Correct # of tags", summary.getTagTotals().size(), is(expected.getTagMap().size()));
+
+		BehaveTestResult actual = new BehaveTestResult(summary, dir);
+		actual.tally();
+		assertThat("Correct # of passing tests", actual.getPassCount(), is(expected.getPassCount()));
+		assertThat("Correct # of failing tests", actual.getFailCount(), is(expected.getFailCount()));
+		assertThat("Correct # of skipped tests", actual.getSkipCount(), is(expected.getSkipCount()));
+		assertThat("Duration is correct", actual.getDuration(), is(expected.getDuration()));
+		assertThat("Features are not loaded", actual.isLoaded(), is(false));
+
+		assertThat("Correct # of features", actual.getFeatures().size(), is(expected.getFeatures().size()));
+		assertThat("Correct # of failing tests", actual.getFailCount(), is(expected.getFailCount()));
+	}
+
+	@Test
+	public void testFilesAreCompressed() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+
+		File dir = tmp.newFolder("result");
+		BehaveResultFormat.writeSegments(expected, dir);
+		File index = new File(dir, BehaveResultFormat.INDEX_FILE_NAME);
+		try (DataInputStream is = new DataInputStream(new FileInputStream(index))) {
+			assertThat("gzip magic", Short.reverseBytes(is.readShort()) & 0xFFFF, is(GZIPInputStream.GZIP_MAGIC));
+		}
+		assertThat("Correct # of features", BehaveResultFormat.readSegments(dir).getFeatures().size(),
+		           is(expected.getFeatures().size()));
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testRejectsOtherVersions() throws Exception {
+		File f = tmp.newFile("feature-0.bin");
+		try (DataOutputStream os = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(f)))) {
+			os.writeInt(BehaveResultFormat.MAGIC);
+			os.write(BehaveResultFormat.VERSION + 1);
+		}
+		BehaveResultFormat.readSegment(f, new StringPool());
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testRejectsOtherFiles() throws Exception {
+		File f = SampleReports.getResourceAsFile("ScenarioResultTest/pending.json");
+		BehaveResultFormat.readSegment(f, new StringPool());
+	}
+}
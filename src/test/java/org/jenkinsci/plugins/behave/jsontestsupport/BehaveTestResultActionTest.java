@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.util.HeapSpaceStringConverter;
+import hudson.util.XStream2;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.thoughtworks.xstream.XStream;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BehaveTestResultActionTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testSummaryIsSavedForResultStoredAsXML() throws Exception {
+		BehaveTestResult expected = SampleReports.parseSample();
+		expected.tally();
+		File rootDir = tmp.newFolder("build");
+		XStream xstream = new XStream2();
+		xstream.alias("result", BehaveTestResult.class);
+		xstream.registerConverter(new HeapSpaceStringConverter(), 100);
+		new XmlFile(xstream, new File(rootDir, "behaveResult.xml")).write(expected);
+		AbstractBuild build = Mockito.mock(AbstractBuild.class);
+		Mockito.when(build.getRootDir()).thenReturn(rootDir);
+
+		BehaveTestResultAction action = new BehaveTestResultAction(build);
+		BehaveResultSummary summary = action.getSummary();
+
+		assertThat("Correct # of passing tests", summary.getPassCount(), is(expected.getPassCount()));
+		assertThat("Correct # of failing tests", summary.getFailCount(), is(expected.getFailCount()));
+		assertThat("Correct # of skipped tests", summary.getSkipCount(), is(expected.getSkipCount()));
+		File file = new File(rootDir, BehaveTestResultAction.SUMMARY_FILE_NAME);
+		assertTrue("summary was saved alongside the XML", file.isFile());
+		assertThat("saved summary is read back", BehaveResultFormat.readSummary(file).getTotalCount(),
+		           is(expected.getTotalCount()));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.mockito.Mockito;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+public class EmbedServerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testParseRange() {
+		assertArrayEquals(new long[] {0, 99}, EmbedServer.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] {500, 999}, EmbedServer.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[] {900, 999}, EmbedServer.parseRange("bytes=-100", 1000));
+		assertArrayEquals("A range past the end is truncated", new long[] {990, 999},
+		                  EmbedServer.parseRange("bytes=990-2000", 1000));
+		assertArrayEquals("A suffix longer than the file is the whole file", new long[] {0, 999},
+		                  EmbedServer.parseRange("bytes=-5000", 1000));
+		assertSame(EmbedServer.UNSATISFIABLE, EmbedServer.parseRange("bytes=1000-", 1000));
+		assertSame(EmbedServer.UNSATISFIABLE, EmbedServer.parseRange("bytes=-0", 1000));
+		assertNull("Several ranges get the whole file", EmbedServer.parseRange("bytes=0-1,5-6", 1000));
+		assertNull("Invalid ranges are ignored", EmbedServer.parseRange("bytes=9-1", 1000));
+		assertNull("Other units are ignored", EmbedServer.parseRange("lines=0-1", 1000));
+		assertNull("Junk is ignored", EmbedServer.parseRange("bytes=a-b", 1000));
+	}
+
+	@Test
+	public void testConditionalRequests() {
+		String etag = new EmbedServer(null, null, "abc").getETag(10, 5000);
+		assertEquals("\"abc\"", etag);
+		assertThat("No conditions", EmbedServer.isNotModified(request(null, null, -1), etag, 5000), is(false));
+		assertThat("Matching etag", EmbedServer.isNotModified(request("\"x\", \"abc\"", null, -1), etag, 5000),
+		           is(true));
+		assertThat("Other etag", EmbedServer.isNotModified(request("\"x\"", null, 9000), etag, 5000), is(false));
+		assertThat("Not modified", EmbedServer.isNotModified(request(null, null, 5999), etag, 5000), is(true));
+		assertThat("Modified", EmbedServer.isNotModified(request(null, null, 4000), etag, 5000), is(false));
+
+		assertThat("Unconditional range", EmbedServer.isRangeCurrent(request(null, null, -1), etag, 5000), is(true));
+		assertThat("Current range", EmbedServer.isRangeCurrent(request(null, etag, -1), etag, 5000), is(true));
+		assertThat("Stale range", EmbedServer.isRangeCurrent(request(null, "\"x\"", -1), etag, 5000), is(false));
+		String weak = new EmbedServer(null, null, null).getETag(10, 5000);
+		assertThat("Weak etags can not be used for ranges",
+		           EmbedServer.isRangeCurrent(request(null, weak, -1), weak, 5000), is(false));
+	}
+
+	@Test
+	public void testTransferCopiesTheRange() throws Exception {
+		File f = tmp.newFile("video.webm");
+		try (OutputStream os = new FileOutputStream(f)) {
+			os.write("0123456789".getBytes(Charset.forName("UTF-8")));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmbedServer.transfer(f, 3, 4, out);
+		assertEquals("3456", out.toString("UTF-8"));
+	}
+
+	private static StaplerRequest request(String ifNoneMatch, String ifRange, long ifModifiedSince) {
+		StaplerRequest req = Mockito.mock(StaplerRequest.class);
+		Mockito.when(req.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+		Mockito.when(req.getHeader("If-Range")).thenReturn(ifRange);
+		Mockito.when(req.getDateHeader("If-Modified-Since")).thenReturn(ifModifiedSince);
+		return req;
+	}
+}
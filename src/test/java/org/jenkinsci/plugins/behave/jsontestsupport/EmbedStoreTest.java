@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class EmbedStoreTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testDigestIsSha256() throws Exception {
+		File f = write(tmp.newFile("abc"), "abc");
+		String digest = BehaveUtils.digest(f);
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", digest);
+		assertThat("A computed digest is valid", EmbedStore.isDigest(digest), is(true));
+		assertThat("A path is not a digest", EmbedStore.isDigest("../../config.xml"), is(false));
+	}
+
+	@Test
+	public void testContentIsKeptUntilTheLastBuildIsDeleted() throws Exception {
+		EmbedStore store = new EmbedStore(tmp.newFolder("store"));
+		File build1 = tmp.newFolder("1");
+		File build2 = tmp.newFolder("2");
+		String shared = BehaveUtils.digest(write(tmp.newFile("shared"), "shared"));
+		String other = BehaveUtils.digest(write(tmp.newFile("other"), "other"));
+
+		store.addReferences(build1, Arrays.asList(shared, other, shared));
+		assertEquals(Arrays.asList(shared, other), Arrays.asList(store.missing(Arrays.asList(shared, other))
+		      .toArray()));
+		store.add(incoming(store, shared, "shared", other, "other"));
+		assertThat("Content is stored", store.missing(Arrays.asList(shared, other)).isEmpty(), is(true));
+
+		store.addReferences(build2, Collections.singletonList(shared));
+		// archiving the same content twice in a build does not count the build twice.
+		store.addReferences(build2, Collections.singletonList(shared));
+		store.add(incoming(store, shared, "shared"));
+
+		store.removeReferences(build1);
+		assertThat("Shared content is kept", store.getFile(shared).exists(), is(true));
+		assertThat("Unreferenced content is removed", store.getFile(other).exists(), is(false));
+
+		store.removeReferences(build2);
+		assertThat("Shared content is removed", store.getFile(shared).exists(), is(false));
+		assertThat("The build no longer has references",
+		           new File(build2, EmbedStore.DIGESTS_FILE_NAME).exists(), is(false));
+	}
+
+	@Test
+	public void testContentThatDoesNotMatchItsNameIsDiscarded() throws Exception {
+		EmbedStore store = new EmbedStore(tmp.newFolder("store"));
+		String good = BehaveUtils.digest(write(tmp.newFile("good"), "good"));
+		String bad = BehaveUtils.digest(write(tmp.newFile("bad"), "bad"));
+
+		store.add(incoming(store, good, "good", bad, "not bad"));
+
+		assertThat("Matching content is stored", store.getFile(good).exists(), is(true));
+		assertThat("Mismatched content is discarded", store.getFile(bad).exists(), is(false));
+	}
+
+	private static File incoming(EmbedStore store, String... digestsAndContent) throws IOException {
+		File incoming = store.createIncomingDir();
+		for (int i = 0; i < digestsAndContent.length; i += 2) {
+			File f = new File(incoming, EmbedStore.getPath(digestsAndContent[i]));
+			f.getParentFile().mkdirs();
+			write(f, digestsAndContent[i + 1]);
+		}
+		return incoming;
+	}
+
+	private static File write(File f, String content) throws IOException {
+		try (OutputStream os = new FileOutputStream(f)) {
+			os.write(content.getBytes(Charset.forName("UTF-8")));
+		}
+		return f;
+	}
+}
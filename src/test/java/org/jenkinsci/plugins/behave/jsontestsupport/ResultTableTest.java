@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.tasks.test.TestResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ResultTableTest {
+
+	private static final String CHECK = "Check status on SAS processes for an environment";
+	private static final String START = "Start all SAS services across an environment";
+	private static final String STOP = "Stop all SAS services across an environment";
+
+	@Test
+	public void testPagesAreSortedByName() throws Exception {
+		ResultTable table = new ResultTable(SampleReports.parseSample().getChildren(), false);
+
+		ResultTable.Page page = table.getPage("f.", ResultTable.Sort.NAME, false, null, 0, 2);
+		assertEquals(Arrays.asList(CHECK, START), names(page));
+		assertThat(page.hasNext(), is(true));
+		assertEquals("?f.sort=name&f.start=2", page.getNextUrl());
+
+		page = table.getPage("f.", ResultTable.Sort.NAME, false, null, 2, 2);
+		assertEquals(Arrays.asList(STOP), names(page));
+		assertThat(page.hasNext(), is(false));
+		assertThat(page.getFirst(), is(3));
+		assertEquals("?f.sort=name&f.reverse=true", page.getSortUrl("name"));
+
+		page = table.getPage("f.", ResultTable.Sort.NAME, true, null, 0, 2);
+		assertEquals(Arrays.asList(STOP, START), names(page));
+	}
+
+	@Test
+	public void testPagesAreFilteredByName() throws Exception {
+		ResultTable table = new ResultTable(SampleReports.parseSample().getChildren(), false);
+
+		ResultTable.Page page = table.getPage("f.", ResultTable.Sort.NAME, false, " all sas ", 0, 10);
+		assertEquals(Arrays.asList(START, STOP), names(page));
+		assertThat(page.hasNext(), is(false));
+
+		page = table.getPage("f.", ResultTable.Sort.NAME, false, "ALL SAS", 1, 1);
+		assertEquals(Arrays.asList(STOP), names(page));
+		assertThat(page.hasNext(), is(false));
+		assertEquals("?f.sort=name&f.filter=ALL%20SAS", page.getPreviousUrl());
+
+		page = table.getPage("f.", ResultTable.Sort.NAME, false, "nothing", 0, 10);
+		assertThat(page.getRows().isEmpty(), is(true));
+	}
+
+	@Test
+	public void testPagesAreSortedByDuration() throws Exception {
+		List<TestResult> features = new ArrayList<TestResult>(SampleReports.parseSample().getChildren());
+		ResultTable table = new ResultTable(features, false);
+
+		List<TestResult> rows = table.getPage("f.", ResultTable.Sort.DURATION, false, null, 0, 10).getRows();
+		assertThat(rows.size(), is(features.size()));
+		for (int i = 1; i < rows.size(); i++) {
+			assertThat("Longest first", rows.get(i - 1).getDuration() >= rows.get(i).getDuration(), is(true));
+		}
+		List<TestResult> reversed = new ArrayList<>(rows);
+		Collections.reverse(reversed);
+		assertEquals(reversed, table.getPage("f.", ResultTable.Sort.DURATION, true, null, 0, 10).getRows());
+	}
+
+	@Test
+	public void testLinksKeepTheParametersOfOtherTables() throws Exception {
+		ResultTable table = new ResultTable(SampleReports.parseSample().getChildren(), false);
+		Map<String, String[]> params = new HashMap<>();
+		params.put("f.filter", new String[] {"sas"});
+		params.put("t.sort", new String[] {"status"});
+		params.put("t.start", new String[] {"100"});
+
+		ResultTable.Page features = table.getPage("f.", params);
+		assertEquals("sas", features.getFilter());
+		assertThat(features.getOtherParameters().size(), is(2));
+		assertEquals("?t.sort=status&t.start=100&f.sort=name&f.reverse=true&f.filter=sas",
+		             features.getSortUrl("name"));
+
+		ResultTable.Page tags = table.getPage("t.", params);
+		assertEquals("status", tags.getSort());
+		assertThat(tags.getFirst(), is(101));
+		assertEquals("?f.filter=sas&t.sort=name", tags.getSortUrl("name"));
+		assertEquals("?f.filter=sas&t.sort=status", tags.getPreviousUrl());
+	}
+
+	private static List<String> names(ResultTable.Page page) {
+		List<String> names = new ArrayList<>();
+		for (TestResult r : page.getRows()) {
+			names.add(ResultTable.getName(r, false));
+		}
+		return names;
+	}
+}
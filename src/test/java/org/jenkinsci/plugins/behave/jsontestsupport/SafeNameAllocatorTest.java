@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SafeNameAllocatorTest {
+
+	@Test
+	public void testDuplicatesAreNumberedInOrder() {
+		SafeNameAllocator names = new SafeNameAllocator();
+		assertEquals("login", names.allocate("login"));
+		assertEquals("logout", names.allocate("logout"));
+		assertEquals("login_2", names.allocate("login"));
+		assertEquals("login_3", names.allocate("login"));
+	}
+
+	@Test
+	public void testReservedNamesAreNotGivenOut() {
+		SafeNameAllocator names = new SafeNameAllocator();
+		names.reserve("login");
+		names.reserve("login_2");
+		assertEquals("login_3", names.allocate("login"));
+		// a child that is really called login_4 does not get the name of a duplicate.
+		assertEquals("login_4", names.allocate("login_4"));
+		assertEquals("login_5", names.allocate("login"));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.mockito.Mockito;
+
+/**
+ * Parses the sample behave json reports that are kept with the tests.
+ * 
+ * @author James Nord
+ */
+final class SampleReports {
+
+	/** The report that most of the tests use. */
+	static final String BEHAVE_SAMPLE = "ScenarioResultTest/behave-sample.json";
+
+
+	private SampleReports() {
+	}
+
+
+	/**
+	 * @return the result of the {@link #BEHAVE_SAMPLE} report.
+	 */
+	static BehaveTestResult parseSample() throws Exception {
+		return parse(BEHAVE_SAMPLE);
+	}
+
+
+	/**
+	 * @param resources the reports, relative to this package.
+	 * @return the result of parsing the reports together.
+	 */
+	static BehaveTestResult parse(String... resources) throws Exception {
+		List<File> files = new ArrayList<>();
+		for (String resource : resources) {
+			files.add(getResourceAsFile(resource));
+		}
+		TaskListener mockListener = Mockito.mock(TaskListener.class);
+		Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+		return new BehaveJSONParser().parse(files, mockListener);
+	}
+
+
+	/**
+	 * @param resource the resource, relative to this package.
+	 * @return the file of the resource.
+	 */
+	static File getResourceAsFile(String resource) throws Exception {
+		URL url = SampleReports.class.getResource(resource);
+		Assert.assertNotNull("Resource " + resource + " could not be found", url);
+		return new File(url.toURI());
+	}
+}
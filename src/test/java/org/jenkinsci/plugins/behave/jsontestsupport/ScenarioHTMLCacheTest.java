@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class ScenarioHTMLCacheTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testPagesAreCachedInMemoryAndOnDisk() throws Exception {
+		AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+		Mockito.when(build.getRootDir()).thenReturn(tmp.newFolder("build"));
+		ScenarioResult sr = getScenario(build);
+		String expected = ScenarioToHTML.getHTML(sr);
+
+		ScenarioHTMLCache cache = new ScenarioHTMLCache(1024 * 1024);
+		assertEquals(expected, cache.getHTML(sr));
+		File page = ScenarioHTMLCache.getFile(build, sr.getParent().getSafeName() + '/' + sr.getSafeName());
+		assertThat("The page is written", page.exists(), is(true));
+		assertThat("The page is held", cache.getSize() > 0, is(true));
+
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(page))) {
+			out.write("cached".getBytes(Charset.forName("UTF-8")));
+		}
+		assertEquals("The page in memory is used", expected, cache.getHTML(sr));
+		assertEquals("The page on disk is used", "cached", new ScenarioHTMLCache(1024 * 1024).getHTML(sr));
+
+		cache.invalidate(BehaveTestResultAction.getCacheKey(build));
+		assertThat(cache.getSize(), is(0L));
+	}
+
+	@Test
+	public void testLargePagesAreWrittenButNotHeld() throws Exception {
+		AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+		Mockito.when(build.getRootDir()).thenReturn(tmp.newFolder("large"));
+		ScenarioResult sr = getScenario(build);
+		String expected = ScenarioToHTML.getHTML(sr);
+
+		ScenarioHTMLCache cache = new ScenarioHTMLCache(expected.length());
+		StringWriter w = new StringWriter();
+		cache.write(sr, w);
+		assertEquals(expected, w.toString());
+		assertThat(cache.getSize(), is(0L));
+		File page = ScenarioHTMLCache.getFile(build, sr.getParent().getSafeName() + '/' + sr.getSafeName());
+		assertThat("The page is written", page.exists(), is(true));
+
+		w = new StringWriter();
+		cache.write(sr, w);
+		assertEquals("The page on disk is copied", expected, w.toString());
+		assertThat(cache.getSize(), is(0L));
+	}
+
+	@Test
+	public void testPagesOfRunningBuildsAreNotCached() throws Exception {
+		AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+		File dir = tmp.newFolder("running");
+		Mockito.when(build.getRootDir()).thenReturn(dir);
+		Mockito.when(build.isBuilding()).thenReturn(true);
+		ScenarioResult sr = getScenario(build);
+
+		ScenarioHTMLCache cache = new ScenarioHTMLCache(1024 * 1024);
+		assertEquals(ScenarioToHTML.getHTML(sr), cache.getHTML(sr));
+		assertThat(cache.getSize(), is(0L));
+		assertThat(new File(dir, ScenarioHTMLCache.CACHE_DIR_NAME).exists(), is(false));
+	}
+
+	private static ScenarioResult getScenario(AbstractBuild<?, ?> build) throws Exception {
+		BehaveTestResult result = SampleReports.parseSample();
+		ScenarioResult sr = result.getFeatures().iterator().next().getScenarioResults().iterator().next();
+		sr.setOwner(build);
+		return sr;
+	}
+}
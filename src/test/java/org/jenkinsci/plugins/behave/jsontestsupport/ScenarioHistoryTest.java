@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import behave.gherkin.formatter.model.Result;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ScenarioHistoryTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testFailuresAreFollowedAcrossBuilds() throws Exception {
+		File file = new File(tmp.getRoot(), ScenarioHistory.FILE_NAME);
+		ScenarioHistory history = ScenarioHistory.read(file);
+
+		BehaveTestResult first = SampleReports.parseSample();
+		history.record(1, first, false);
+		ScenarioResult failed = getScenario(first, false);
+		ScenarioResult passed = getScenario(first, true);
+		String failedKey = ScenarioHistory.key(failed);
+		String passedKey = ScenarioHistory.key(passed);
+		assertThat("The first run has no previous run", history.getPreviousOutcome(failedKey, 1),
+		           is(ScenarioHistory.Outcome.NONE));
+		assertThat("A new failure starts in its build", failed.getStoredFailedSince(), is(1));
+
+		BehaveTestResult second = SampleReports.parseSample();
+		history.record(2, second, false);
+		assertThat(history.getPreviousOutcome(failedKey, 2), is(ScenarioHistory.Outcome.FAILED));
+		assertThat(history.getPreviousOutcome(passedKey, 2), is(ScenarioHistory.Outcome.PASSED));
+		assertThat("The failure continues", getScenario(second, false).getStoredFailedSince(), is(1));
+		assertThat(history.getFailedSince(failedKey, 2), is(1));
+
+		// the history is read back as it was saved.
+		history = ScenarioHistory.read(file);
+		assertThat(history.getPreviousOutcome(failedKey, 2), is(ScenarioHistory.Outcome.FAILED));
+		assertThat(history.getPreviousOutcome(failedKey, 1), is(ScenarioHistory.Outcome.NONE));
+
+		history.record(4, new BehaveTestResult(), false);
+		assertThat("A build without the scenario is not its previous run",
+		           history.getPreviousOutcome(failedKey, 5), is(ScenarioHistory.Outcome.FAILED));
+		history.forget(2);
+		history.forget(1);
+		assertThat("Deleted builds are not previous runs", history.getPreviousOutcome(failedKey, 5),
+		           is(ScenarioHistory.Outcome.NONE));
+	}
+
+	@Test
+	public void testUnrecordedBuildsAreUnknown() throws Exception {
+		ScenarioHistory history = ScenarioHistory.read(new File(tmp.getRoot(), ScenarioHistory.FILE_NAME));
+		BehaveTestResult result = SampleReports.parseSample();
+		history.record(7, result, true);
+		ScenarioResult failed = getScenario(result, false);
+		String key = ScenarioHistory.key(failed);
+		assertThat("Earlier builds were not recorded", history.getPreviousOutcome(key, 7),
+		           is(ScenarioHistory.Outcome.UNKNOWN));
+		assertThat("The failure is left to be found from the previous results", failed.getStoredFailedSince(),
+		           is(0));
+		assertThat(history.getPreviousOutcome(key, 3), is(ScenarioHistory.Outcome.UNKNOWN));
+		assertThat(history.getPreviousOutcome("unknown/scenario", 8), is(ScenarioHistory.Outcome.UNKNOWN));
+	}
+
+	@Test
+	public void testFlakyScenariosAreFound() throws Exception {
+		File file = new File(tmp.getRoot(), ScenarioHistory.FILE_NAME);
+		ScenarioHistory history = ScenarioHistory.read(file);
+		String key = null;
+		for (int build = 1; build <= 4; build++) {
+			BehaveTestResult result = SampleReports.parseSample();
+			ScenarioResult sr = getScenario(result, true);
+			key = ScenarioHistory.key(sr);
+			if (build % 2 == 0) {
+				sr.addStepResult(new StepResult(null, null, new Result(Result.FAILED, 1L, null)));
+				result.tally();
+			}
+			history.record(build, result, false);
+		}
+
+		List<FlakyScenario> flaky = history.getFlakyScenarios();
+		assertThat("Only the changed scenario is flaky", flaky.size(), is(1));
+		assertThat(flaky.get(0).getId(), is(key));
+		assertThat(flaky.get(0).getRuns(), is(4));
+		assertThat(flaky.get(0).getFailures(), is(2));
+		assertThat(flaky.get(0).getFlips(), is(3));
+		assertThat(flaky.get(0).getFlipRate(), is(1.0f));
+
+		// the builds after the first are only in the log, which is replayed when the history is read.
+		flaky = ScenarioHistory.read(file).getFlakyScenarios();
+		assertThat(flaky.size(), is(1));
+		assertThat(flaky.get(0).getFlips(), is(3));
+		assertThat(flaky.get(0).getLastBuild(), is(4));
+	}
+
+	@Test
+	public void testDurationsAreKeptForScenariosAndTags() throws Exception {
+		ScenarioHistory history = ScenarioHistory.read(new File(tmp.getRoot(), ScenarioHistory.FILE_NAME));
+		String key = null;
+		String tag = null;
+		for (int build = 1; build <= 8; build++) {
+			BehaveTestResult result = SampleReports.parseSample();
+			ScenarioResult sr = getScenario(result, true);
+			key = ScenarioHistory.key(sr);
+			tag = result.getTagMap().keySet().iterator().next();
+			sr.setTally(false, false, build <= 4 ? 1.0f : 2.0f);
+			history.record(build, result, false);
+		}
+
+		DurationTrend trend = history.getScenarioTrend(key);
+		assertThat(trend.getRuns(), is(8));
+		assertThat(trend.getBuilds()[0], is(1));
+		assertThat(trend.getDurations()[7], is(2.0f));
+		assertThat(trend.getP50(), is(1.0f));
+		assertThat(trend.getP95(), is(2.0f));
+		assertThat("The newer runs are a second slower", trend.getSlowdown(), is(1.0f));
+
+		Assert.assertNotNull("Tags are kept", history.getTagTrend(tag));
+		Assert.assertNull("Tags are not scenarios", history.getScenarioTrend("tag:" + tag));
+		for (DurationTrend t : history.getTrends(false)) {
+			assertThat("Only the changed scenario slowed down", t.getSlowdown() > 0.0f, is(t.getId().equals(key)));
+		}
+	}
+
+	@Test
+	public void testPercentilesAreByNearestRank() {
+		float[] sorted = { 1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f, 7.0f, 8.0f, 9.0f, 10.0f };
+		assertThat(DurationTrend.percentile(sorted, 50), is(5.0f));
+		assertThat(DurationTrend.percentile(sorted, 95), is(10.0f));
+		assertThat(DurationTrend.percentile(new float[] { 3.0f }, 95), is(3.0f));
+		assertThat(DurationTrend.percentile(new float[0], 50), is(0.0f));
+	}
+
+	private static ScenarioResult getScenario(BehaveTestResult result, boolean passed) {
+		for (FeatureResult fr : result.getFeatures()) {
+			for (ScenarioResult sr : fr.getScenarioResults()) {
+				// a skipped scenario passes, but is not counted as a run by the flakiness.
+				if (sr.isPassed() == passed && sr.getSkipCount() == 0) {
+					return sr;
+				}
+			}
+		}
+		Assert.fail("No scenario " + (passed ? "passed" : "failed"));
+		return null;
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Generates behave json reports of any size for tests and benchmarks. The same settings always produce the same
+ * report, so results can be compared between runs.
+ * <p>
+ * Scenarios fail at an even spread according to the {@link #failureRatio(double) failure ratio}: a failing scenario
+ * has one failed step, after which the remaining steps are skipped.
+ * 
+ * @author James Nord
+ */
+final class SyntheticBehaveReport {
+
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+	                                     .toCharArray();
+
+	private long seed = 1;
+	private int features = 10;
+	private int scenariosPerFeature = 10;
+	private int examplesPerOutline = 0;
+	private int stepsPerScenario = 5;
+	private int tags = 20;
+	private int tagsPerScenario = 2;
+	private double failureRatio = 0.1;
+	private int tableRows = 0;
+	private int tracebackDepth = 5;
+	private int embeddingSize = 0;
+
+
+	/** The seed of the durations, tags and failing steps. */
+	SyntheticBehaveReport seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+
+	SyntheticBehaveReport features(int features) {
+		this.features = features;
+		return this;
+	}
+
+
+	SyntheticBehaveReport scenariosPerFeature(int scenariosPerFeature) {
+		this.scenariosPerFeature = scenariosPerFeature;
+		return this;
+	}
+
+
+	/**
+	 * Make every scenario a scenario outline which behave reports as one scenario per example. <code>0</code> writes
+	 * plain scenarios.
+	 */
+	SyntheticBehaveReport examplesPerOutline(int examplesPerOutline) {
+		this.examplesPerOutline = examplesPerOutline;
+		return this;
+	}
+
+
+	SyntheticBehaveReport stepsPerScenario(int stepsPerScenario) {
+		this.stepsPerScenario = stepsPerScenario;
+		return this;
+	}
+
+
+	/**
+	 * @param tags the number of distinct tags to pick from.
+	 * @param tagsPerScenario the number of tags of each scenario.
+	 */
+	SyntheticBehaveReport tags(int tags, int tagsPerScenario) {
+		this.tags = tags;
+		this.tagsPerScenario = tagsPerScenario;
+		return this;
+	}
+
+
+	/** The fraction of scenarios, from <code>0</code> to <code>1</code>, that fail. */
+	SyntheticBehaveReport failureRatio(double failureRatio) {
+		this.failureRatio = failureRatio;
+		return this;
+	}
+
+
+	/** The number of rows of the data table of the first step of each scenario, <code>0</code> for no table. */
+	SyntheticBehaveReport tableRows(int tableRows) {
+		this.tableRows = tableRows;
+		return this;
+	}
+
+
+	/** The number of frames in the traceback of each failed step. */
+	SyntheticBehaveReport tracebackDepth(int tracebackDepth) {
+		this.tracebackDepth = tracebackDepth;
+		return this;
+	}
+
+
+	/** The size in bytes of the screenshot embedded in each failed step, <code>0</code> for no embedding. */
+	SyntheticBehaveReport embeddingSize(int embeddingSize) {
+		this.embeddingSize = embeddingSize;
+		return this;
+	}
+
+
+	/**
+	 * @return the number of scenarios in the report, counting each example of an outline.
+	 */
+	int getScenarioCount() {
+		return features * scenariosPerFeature * Math.max(1, examplesPerOutline);
+	}
+
+
+	/**
+	 * @return the number of scenarios in the report that fail.
+	 */
+	int getFailCount() {
+		return (int) Math.floor(getScenarioCount() * failureRatio);
+	}
+
+
+	/**
+	 * Write the report.
+	 * 
+	 * @param file the file to write, any existing file is overwritten.
+	 * @return <code>file</code>
+	 * @throws IOException if the report could not be written.
+	 */
+	File write(File file) throws IOException {
+		try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+		                                                          Charset.forName("UTF-8")))) {
+			write(w);
+		}
+		return file;
+	}
+
+
+	/**
+	 * Write the report.
+	 * 
+	 * @param w the writer to write the report to, which is not closed.
+	 * @throws IOException if the report could not be written.
+	 */
+	void write(Writer w) throws IOException {
+		Random random = new Random(seed);
+		int scenario = 0;
+		w.write("[\n");
+		for (int f = 0; f < features; f++) {
+			if (f != 0) {
+				w.write(",\n");
+			}
+			String uri = "features/feature_" + f + ".feature";
+			w.write("{\"keyword\": \"Feature\", \"location\": \"" + uri + ":2\", \"name\": \"Feature " + f
+			        + "\", \"description\": \"As a tester I want feature " + f + " to work\", \"tags\": [\"area"
+			        + (f % 5) + "\"], \"elements\": [\n");
+			int line = 6;
+			for (int s = 0; s < scenariosPerFeature; s++) {
+				int examples = Math.max(1, examplesPerOutline);
+				for (int e = 0; e < examples; e++) {
+					if (s != 0 || e != 0) {
+						w.write(",\n");
+					}
+					writeScenario(w, random, uri, line, s, e, isFailure(scenario++));
+				}
+				line += stepsPerScenario + 3 + (tableRows == 0 ? 0 : tableRows + 1) + (examplesPerOutline == 0 ? 0
+				        : examplesPerOutline + 3);
+			}
+			w.write("\n]}");
+		}
+		w.write("\n]\n");
+	}
+
+
+	/**
+	 * Spread the failures evenly, scenario <code>i</code> fails if the number of failures up to it grows.
+	 */
+	private boolean isFailure(int i) {
+		return Math.floor((i + 1) * failureRatio) > Math.floor(i * failureRatio);
+	}
+
+
+	private void writeScenario(Writer w, Random random, String uri, int line, int s, int example, boolean fail)
+	        throws IOException {
+		String name = "Scenario " + s + " does something useful";
+		String keyword = "Scenario";
+		if (examplesPerOutline > 0) {
+			name += " -- @1." + (example + 1) + " Examples";
+			keyword = "Scenario Outline";
+		}
+		w.write("{\"keyword\": \"" + keyword + "\", \"type\": \"scenario\", \"location\": \"" + uri + ":" + line
+		        + "\", \"name\": \"" + name + "\", \"tags\": [");
+		for (int t = 0; t < tagsPerScenario && t < tags; t++) {
+			if (t != 0) {
+				w.write(", ");
+			}
+			w.write("\"tag" + random.nextInt(tags) + "\"");
+		}
+		w.write("], \"steps\": [\n");
+		int failedStep = fail ? random.nextInt(stepsPerScenario) : -1;
+		int stepLine = line + 1;
+		for (int i = 0; i < stepsPerScenario; i++) {
+			if (i != 0) {
+				w.write(",\n");
+			}
+			String status;
+			if (failedStep < 0 || i < failedStep) {
+				status = "passed";
+			}
+			else if (i == failedStep) {
+				status = "failed";
+			}
+			else {
+				status = "skipped";
+			}
+			String stepKeyword = i == 0 ? "Given" : i == stepsPerScenario - 1 ? "Then" : "And";
+			String stepType = i == stepsPerScenario - 1 ? "then" : "given";
+			w.write("{\"keyword\": \"" + stepKeyword + "\", \"step_type\": \"" + stepType
+			        + "\", \"location\": \"" + uri + ":" + stepLine + "\", \"line\": " + stepLine
+			        + ", \"name\": \"step " + i + " of the scenario is run with value " + (example + 1) + "\"");
+			stepLine++;
+			if (i == 0 && tableRows > 0) {
+				w.write(", \"rows\": [");
+				for (int r = 0; r <= tableRows; r++) {
+					if (r != 0) {
+						w.write(", ");
+					}
+					w.write(r == 0 ? "{\"cells\": [\"name\", \"value\", \"expected\"]"
+					               : "{\"cells\": [\"row" + r + "\", \"" + random.nextInt(1000) + "\", \"ok\"]");
+					w.write(", \"line\": " + stepLine++ + "}");
+				}
+				w.write("]");
+			}
+			w.write(", \"match\": {\"arguments\": [], \"location\": \"features/steps/steps_" + (s % 10) + ".py:"
+			        + (10 + 5 * i) + "\"}");
+			if (!"skipped".equals(status)) {
+				w.write(", \"result\": {\"duration\": " + random.nextInt(2000) / 1000.0 + ", \"status\": \""
+				        + status + "\"");
+			}
+			else {
+				w.write(", \"result\": {\"status\": \"skipped\"");
+			}
+			if (i == failedStep) {
+				w.write(", \"error_message\": \"");
+				w.write("Traceback (most recent call last):\\n");
+				for (int d = 0; d < tracebackDepth; d++) {
+					w.write("  File \\\"/usr/lib/python2.7/site-packages/behave/module_" + d + ".py\\\", line "
+					        + (100 + d) + ", in function_" + d + "\\n    result = function_" + (d + 1)
+					        + "(context)\\n");
+				}
+				w.write("AssertionError: expected " + (example + 1) + " but was " + random.nextInt(1000) + "\"");
+			}
+			w.write("}");
+			if (i == failedStep && embeddingSize > 0) {
+				w.write(", \"embeddings\": [{\"mime_type\": \"image/png\", \"data\": \"");
+				writeBase64(w, random, embeddingSize);
+				w.write("\"}]");
+			}
+			w.write("}");
+		}
+		w.write("]}");
+	}
+
+
+	/**
+	 * Write <code>size</code> random bytes as base64 without holding them all in memory.
+	 */
+	private static void writeBase64(Writer w, Random random, int size) throws IOException {
+		for (int i = 0; i < size; i += 3) {
+			int n = Math.min(3, size - i);
+			int b = (random.nextInt(256) << 16) | (n > 1 ? random.nextInt(256) << 8 : 0)
+			        | (n > 2 ? random.nextInt(256) : 0);
+			w.write(BASE64[(b >> 18) & 0x3F]);
+			w.write(BASE64[(b >> 12) & 0x3F]);
+			w.write(n > 1 ? BASE64[(b >> 6) & 0x3F] : '=');
+			w.write(n > 2 ? BASE64[b & 0x3F] : '=');
+		}
+	}
+}
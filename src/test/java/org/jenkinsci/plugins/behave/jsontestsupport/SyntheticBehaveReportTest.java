@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2013, Cisco Systems, Inc., a California corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.behave.jsontestsupport;
+
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+public class SyntheticBehaveReportTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testReportIsDeterministic() throws Exception {
+		assertThat("Same report for the same seed", write(new SyntheticBehaveReport().seed(42)),
+		           is(write(new SyntheticBehaveReport().seed(42))));
+		assertThat("Different report for another seed", write(new SyntheticBehaveReport().seed(42)),
+		           not(write(new SyntheticBehaveReport().seed(43))));
+	}
+
+	@Test
+	public void testReportCanBeParsed() throws Exception {
+		SyntheticBehaveReport report = new SyntheticBehaveReport().features(3).scenariosPerFeature(7)
+		                                                          .examplesPerOutline(2).failureRatio(0.25)
+		                                                          .tableRows(2).embeddingSize(100);
+		File f = report.write(tmp.newFile("report.json"));
+
+		TaskListener mockListener = Mockito.mock(TaskListener.class);
+		Mockito.when(mockListener.getLogger()).thenReturn(System.out);
+		BehaveTestResult result = new BehaveJSONParser().parse(Collections.singletonList(f), mockListener);
+
+		assertThat("Correct # of features", result.getFeatures().size(), is(3));
+		assertThat("Correct # of tests", result.getTotalCount(), is(report.getScenarioCount()));
+		assertThat("Correct # of failing tests", result.getFailCount(), is(report.getFailCount()));
+		int embedded = 0;
+		for (FeatureResult fr : result.getFeatures()) {
+			for (ScenarioResult sr : fr.getChildren()) {
+				embedded += sr.getEmbeddedItems().size();
+			}
+		}
+		assertThat("Failed steps have embeddings", embedded, is(report.getFailCount()));
+	}
+
+	private static String write(SyntheticBehaveReport report) throws Exception {
+		StringWriter w = new StringWriter();
+		report.write(w);
+		return w.toString();
+	}
+}